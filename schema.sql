@@ -40,6 +40,9 @@ CREATE TABLE `Product` (
   `type`             VARCHAR(30)  NOT NULL DEFAULT 'fruit',
   `threshold`        INT          NOT NULL DEFAULT 5,
   `image`            LONGBLOB     DEFAULT NULL,
+  `thumbnail`        MEDIUMBLOB   DEFAULT NULL,
+  `image_hash`       CHAR(64)     DEFAULT NULL,
+  `thumbnail_hash`   CHAR(64)     DEFAULT NULL,
   `discount_percent` DOUBLE       DEFAULT 0,
   PRIMARY KEY (`product_id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -125,7 +128,26 @@ CREATE TABLE `CustomerLoyalty` (
   `points`       INT         NOT NULL DEFAULT 0,
   `total_spent`  DOUBLE      NOT NULL DEFAULT 0,
   `level`        VARCHAR(20) NOT NULL DEFAULT 'BRONZE',
-  PRIMARY KEY (`id`)
+  PRIMARY KEY (`id`),
+  KEY `idx_loyalty_points` (`points`, `username`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- ------------------------------------------------------------
+-- TABLE: LoyaltyLedger (append-only; folded into CustomerLoyalty)
+-- ------------------------------------------------------------
+DROP TABLE IF EXISTS `LoyaltyLedger`;
+CREATE TABLE `LoyaltyLedger` (
+  `entry_id`     INT           NOT NULL AUTO_INCREMENT,
+  `username`     VARCHAR(50)   NOT NULL,
+  `points_delta` INT           NOT NULL,
+  `amount`       DECIMAL(12,2) NOT NULL DEFAULT 0,
+  `reason`       VARCHAR(20)   NOT NULL,
+  `order_id`     INT           NULL,
+  `applied`      BOOLEAN       NOT NULL DEFAULT FALSE,
+  `created_at`   TIMESTAMP     DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`entry_id`),
+  KEY `idx_ledger_pending` (`applied`, `entry_id`),
+  KEY `idx_ledger_user` (`username`, `applied`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- ------------------------------------------------------------
@@ -171,7 +193,10 @@ CREATE TABLE `SystemMessage` (
   `related_product_id` INT          DEFAULT NULL,
   `created_at`         TIMESTAMP    DEFAULT CURRENT_TIMESTAMP,
   `is_read`            BOOLEAN      DEFAULT FALSE,
+  -- Set only while the alert is unread, so each product has at most one open alert per type
+  `open_key`           VARCHAR(80)  AS (IF(`is_read`, NULL, CONCAT(`message_type`, ':', `related_product_id`))) STORED,
   PRIMARY KEY (`id`),
+  UNIQUE KEY `uq_sysmsg_open_key` (`open_key`),
   CONSTRAINT `sysmsg_ibfk_1` FOREIGN KEY (`related_product_id`) REFERENCES `Product` (`product_id`) ON DELETE SET NULL
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
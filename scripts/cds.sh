@@ -0,0 +1,52 @@
+#!/bin/sh
+# Faster cold start through an AppCDS archive of the classes the app loads.
+#
+#   scripts/cds.sh train   package the compiled classes and record the archive
+#   scripts/cds.sh run     start the app with the archive
+#
+# "train" starts the app once with -Dgreengrocer.cds.training=true: it builds
+# every screen and quits, and the JVM writes the loaded classes to
+# build/greengrocer.jsa. Run it again after each rebuild; a stale archive is
+# ignored by the JVM (the app still starts, just without the speed-up).
+#
+# CLASSES     compiled classes and resources (default: IntelliJ's output folder)
+# JAVAFX_LIB  the lib folder of the JavaFX SDK (required)
+# JAVA        java launcher (default: java on the PATH)
+set -e
+
+cd "$(dirname "$0")/.."
+
+CLASSES=${CLASSES:-out/production/CMPE343_GreenGrocer}
+JAVA=${JAVA:-java}
+: "${JAVAFX_LIB:?set JAVAFX_LIB to the lib folder of the JavaFX SDK}"
+
+JAR=build/greengrocer.jar
+ARCHIVE=build/greengrocer.jsa
+
+# CDS only archives classes from jars, and needs the same class path on
+# every run, so the app and each library are listed explicitly
+classpath() {
+    cp="$JAR"
+    for jar in libs/*.jar "$JAVAFX_LIB"/*.jar; do
+        cp="$cp:$jar"
+    done
+    echo "$cp"
+}
+
+case "$1" in
+    train)
+        mkdir -p build
+        jar cf "$JAR" -C "$CLASSES" .
+        rm -f "$ARCHIVE"
+        "$JAVA" -XX:ArchiveClassesAtExit="$ARCHIVE" -Dgreengrocer.cds.training=true \
+            -cp "$(classpath)" app.Launcher
+        echo "Wrote $ARCHIVE"
+        ;;
+    run)
+        "$JAVA" -XX:SharedArchiveFile="$ARCHIVE" -cp "$(classpath)" app.Launcher
+        ;;
+    *)
+        echo "usage: $0 train|run" >&2
+        exit 1
+        ;;
+esac
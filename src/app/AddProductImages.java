@@ -44,7 +44,8 @@ public class AddProductImages {
                     System.out.println("  Size: " + imageBytes.length + " bytes");
 
                     // Update product in database
-                    String sql = "UPDATE Product SET image = ? WHERE LOWER(name) LIKE ?";
+                    String sql = "UPDATE Product SET image = ?, image_hash = SHA2(image, 256), "
+                            + "thumbnail = NULL, thumbnail_hash = NULL WHERE LOWER(name) LIKE ?";
                     try (PreparedStatement ps = con.prepareStatement(sql)) {
                         ps.setBytes(1, imageBytes);
                         ps.setString(2, "%" + productName.toLowerCase() + "%");
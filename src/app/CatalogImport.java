@@ -0,0 +1,33 @@
+package app;
+
+import service.CatalogImportService;
+
+import java.nio.file.Path;
+
+/**
+ * Bulk catalog import from CSV: new products, price changes and restocks.
+ * See CatalogImportService for the file format.
+ *
+ * Usage: java app.CatalogImport file.csv [--dry-run]
+ */
+public class CatalogImport {
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: java app.CatalogImport file.csv [--dry-run]");
+            System.exit(2);
+        }
+        boolean dryRun = args.length > 1 && "--dry-run".equals(args[1]);
+
+        try {
+            long start = System.nanoTime();
+            CatalogImportService.Report report = CatalogImportService.importCsv(Path.of(args[0]), dryRun);
+            System.out.println(report.summary());
+            System.out.printf("Done in %.1f s%n", (System.nanoTime() - start) / 1e9);
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
@@ -1,12 +1,10 @@
 package app;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import service.ImageIngestService;
 import util.DBUtil;
 
 /**
@@ -15,8 +13,6 @@ import util.DBUtil;
  */
 public class ImageLoader {
 
-    private static final String IMAGE_FOLDER = "images_market";
-
     // 25 Fruits with prices
     private static final String[][] FRUITS = {
             { "Red Apple", "15.00" },
@@ -93,8 +89,8 @@ public class ImageLoader {
             insertProducts(conn, VEGETABLES, "vegetable");
 
             // Step 4: Load images
-            System.out.println("4. Loading images from " + IMAGE_FOLDER + "...\n");
-            loadImages(conn);
+            System.out.println("4. Loading images from images_market...\n");
+            loadImages();
 
             System.out.println("\n=== Setup Complete! ===");
 
@@ -128,56 +124,22 @@ public class ImageLoader {
                 ps.setString(1, product[0]);
                 ps.setString(2, type);
                 ps.setDouble(3, Double.parseDouble(product[1]));
-                ps.executeUpdate();
+                ps.addBatch();
             }
+            ps.executeBatch();
             System.out.println("   Added " + products.length + " " + type + "s.");
         }
     }
 
-    private static void loadImages(Connection conn) throws SQLException, IOException {
-        String sql = "UPDATE Product SET image = ? WHERE name = ?";
-        int loaded = 0;
-        int notFound = 0;
-
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+    private static void loadImages() {
+        ImageIngestService.Result result = ImageIngestService.ingestAll(false, 0);
 
-            // Load fruit images
-            for (String[] fruit : FRUITS) {
-                if (loadImage(ps, fruit[0]))
-                    loaded++;
-                else
-                    notFound++;
-            }
-
-            // Load vegetable images
-            for (String[] veg : VEGETABLES) {
-                if (loadImage(ps, veg[0]))
-                    loaded++;
-                else
-                    notFound++;
-            }
+        System.out.println("   ✅ " + result.getLoaded() + " images loaded");
+        if (result.getMissing() > 0) {
+            System.out.println("   ⚠️ " + result.getMissing() + " images not found");
         }
-
-        System.out.println("   ✅ " + loaded + " images loaded");
-        if (notFound > 0) {
-            System.out.println("   ⚠️ " + notFound + " images not found");
-        }
-    }
-
-    private static boolean loadImage(PreparedStatement ps, String productName) throws SQLException, IOException {
-        File imageFile = new File(IMAGE_FOLDER + File.separator + productName + ".jpg");
-
-        if (!imageFile.exists()) {
-            System.out.println("   ❌ Not found: " + productName + ".jpg");
-            return false;
-        }
-
-        try (FileInputStream fis = new FileInputStream(imageFile)) {
-            ps.setBinaryStream(1, fis, (int) imageFile.length());
-            ps.setString(2, productName);
-            ps.executeUpdate();
-            System.out.println("   ✓ " + productName);
-            return true;
+        if (result.getFailed() > 0) {
+            System.out.println("   ❌ " + result.getFailed() + " images failed");
         }
     }
 }
\ No newline at end of file
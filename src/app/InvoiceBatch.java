@@ -0,0 +1,72 @@
+package app;
+
+import service.BatchInvoiceService;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+/**
+ * Batch PDF invoice run (e.g. end of month) for orders created in
+ * [from, to). Writes invoice-<id>.pdf files to a folder, or stores PDFs in
+ * the database for orders that have no invoice yet.
+ *
+ * Usage: java app.InvoiceBatch --from 2024-05-01 --to 2024-06-01 (--dir folder | --db) [--threads n]
+ */
+public class InvoiceBatch {
+
+    private static final String USAGE =
+            "Usage: java app.InvoiceBatch --from yyyy-MM-dd --to yyyy-MM-dd (--dir folder | --db) [--threads n]";
+
+    public static void main(String[] args) {
+        Timestamp from = null;
+        Timestamp to = null;
+        Path dir = null;
+        boolean toDb = false;
+        int threads = 0;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--from" -> from = Timestamp.valueOf(LocalDate.parse(args[++i]).atStartOfDay());
+                    case "--to" -> to = Timestamp.valueOf(LocalDate.parse(args[++i]).atStartOfDay());
+                    case "--dir" -> dir = Path.of(args[++i]);
+                    case "--db" -> toDb = true;
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        if (from == null || to == null || (dir == null) == !toDb) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        try {
+            long start = System.nanoTime();
+            BatchInvoiceService.ProgressListener progress = (done, total) -> {
+                if (done % 100 == 0 || done == total)
+                    System.out.println("  " + done + "/" + total + " orders...");
+            };
+            BatchInvoiceService.BatchResult result = toDb
+                    ? BatchInvoiceService.generateToDatabase(from, to, threads, progress)
+                    : BatchInvoiceService.generateToDirectory(from, to, dir, threads, progress);
+
+            System.out.println("Generated " + result.getGenerated() + " invoices, skipped "
+                    + result.getSkipped() + " that already had one.");
+            if (!result.getFailedOrderIds().isEmpty())
+                System.out.println("Failed orders: " + result.getFailedOrderIds());
+            System.out.printf("Done in %.1f s%n", (System.nanoTime() - start) / 1e9);
+            if (!result.getFailedOrderIds().isEmpty())
+                System.exit(1);
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
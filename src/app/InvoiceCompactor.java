@@ -0,0 +1,35 @@
+package app;
+
+import dao.InvoiceDAO;
+
+/**
+ * Migration job: moves existing invoices into the compressed archive.
+ * Safe to re-run; already archived invoices are skipped.
+ *
+ * Usage: java app.InvoiceCompactor [batchSize]
+ */
+public class InvoiceCompactor {
+
+    private static final int DEFAULT_BATCH_SIZE = 50;
+
+    public static void main(String[] args) {
+        int batchSize = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_BATCH_SIZE;
+
+        long before = InvoiceDAO.getStorageBytes();
+        System.out.println("Invoice storage before: " + before + " bytes");
+
+        int total = 0;
+        int archived;
+        while ((archived = InvoiceDAO.compactBatch(batchSize)) > 0) {
+            total += archived;
+            System.out.println("  Archived " + total + " invoices...");
+        }
+
+        long after = InvoiceDAO.getStorageBytes();
+        System.out.println("Archived " + total + " invoices.");
+        System.out.println("Invoice storage after: " + after + " bytes");
+        if (after > 0) {
+            System.out.printf("Reduction: %.1fx%n", (double) before / after);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package app;
+
+import service.InvoiceExportService;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+/**
+ * Bulk invoice export for orders created in [from, to): a ZIP with one PDF
+ * per order, or a single merged PDF (e.g. for the accountant).
+ *
+ * Usage: java app.InvoiceExport --from 2024-05-01 --to 2024-06-01 (--zip out.zip | --pdf out.pdf) [--threads n]
+ */
+public class InvoiceExport {
+
+    private static final String USAGE =
+            "Usage: java app.InvoiceExport --from yyyy-MM-dd --to yyyy-MM-dd (--zip file | --pdf file) [--threads n]";
+
+    public static void main(String[] args) {
+        Timestamp from = null;
+        Timestamp to = null;
+        Path zipFile = null;
+        Path pdfFile = null;
+        int threads = 0;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--from" -> from = Timestamp.valueOf(LocalDate.parse(args[++i]).atStartOfDay());
+                    case "--to" -> to = Timestamp.valueOf(LocalDate.parse(args[++i]).atStartOfDay());
+                    case "--zip" -> zipFile = Path.of(args[++i]);
+                    case "--pdf" -> pdfFile = Path.of(args[++i]);
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        if (from == null || to == null || (zipFile == null) == (pdfFile == null)) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        try {
+            long start = System.nanoTime();
+            InvoiceExportService.ProgressListener progress = (done, total) -> {
+                if (done % 100 == 0 || done == total)
+                    System.out.println("  " + done + "/" + total + " invoices...");
+            };
+            int written = zipFile != null
+                    ? InvoiceExportService.exportZip(from, to, zipFile, threads, progress)
+                    : InvoiceExportService.exportMergedPdf(from, to, pdfFile, threads, progress);
+
+            System.out.println("Exported " + written + " invoices to "
+                    + (zipFile != null ? zipFile : pdfFile) + ".");
+            System.out.printf("Done in %.1f s%n", (System.nanoTime() - start) / 1e9);
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
@@ -1,21 +1,41 @@
 package app;
 
+import dao.UserDAO;
+import controller.ViewRegistry;
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
+import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import service.InvoiceService;
+import service.LowStockAlertService;
+import service.LoyaltyAggregator;
+
+import java.lang.management.ManagementFactory;
 
 public class Main extends Application {
 
     private static final String STYLESHEET = "/view/styles.css";
 
+    // Every screen, loaded once by a CDS training run (scripts/cds.sh)
+    private static final String[] ALL_VIEWS = {
+            "/view/register.fxml", "/view/customer.fxml", "/view/carrier.fxml", "/view/owner.fxml",
+            "/view/cart.fxml", "/view/myorders.fxml", "/view/messages.fxml", "/view/profile.fxml"
+    };
+
     @Override
     public void start(Stage stage) throws Exception {
 
-        FXMLLoader loader = new FXMLLoader(
-                getClass().getResource("/view/login.fxml"));
+        // Background services: low-stock alerts and loyalty ledger folding
+        LowStockAlertService.start();
+        LoyaltyAggregator.start();
+
+        // Store final invoices when orders are delivered or cancelled
+        InvoiceService.start();
 
-        Scene scene = new Scene(loader.load(), 960, 540);
+        // Username filter to skip most registration checks
+        UserDAO.loadMembershipFilters();
+
+        Scene scene = new Scene(ViewRegistry.load("/view/login.fxml").root(), 960, 540);
 
         // Apply modern stylesheet
         String css = getClass().getResource(STYLESHEET).toExternalForm();
@@ -25,6 +45,34 @@ public class Main extends Application {
         stage.setScene(scene);
         stage.setMaximized(true);
         stage.show();
+        if (Boolean.getBoolean("greengrocer.timing")) {
+            System.out.printf("Login screen shown %d ms after JVM start%n",
+                    ManagementFactory.getRuntimeMXBean().getUptime());
+        }
+
+        if (Boolean.getBoolean("greengrocer.cds.training")) {
+            trainAndExit();
+            return;
+        }
+
+        // Read the next screens while the user types their credentials
+        ViewRegistry.preload("/view/register.fxml", "/view/customer.fxml",
+                "/view/carrier.fxml", "/view/owner.fxml");
+    }
+
+    /**
+     * Build every screen once and quit, so that the classes they need end up
+     * in the archive written by -XX:ArchiveClassesAtExit.
+     */
+    private void trainAndExit() {
+        for (String view : ALL_VIEWS) {
+            try {
+                ViewRegistry.load(view);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        Platform.runLater(Platform::exit);
     }
 
     public static void main(String[] args) {
@@ -16,6 +16,31 @@ public class SchemaFixer {
 
                 // Add missing columns to Product if needed (just in case)
                 "ALTER TABLE Product ADD COLUMN threshold INT DEFAULT 10",
+                // Card-sized rendition of Product.image, see ImageTranscoder
+                "ALTER TABLE Product ADD COLUMN thumbnail MEDIUMBLOB NULL",
+                // SHA-256 of image/thumbnail: the key of the local ImageCache
+                "ALTER TABLE Product ADD COLUMN image_hash CHAR(64) NULL",
+                "ALTER TABLE Product ADD COLUMN thumbnail_hash CHAR(64) NULL",
+                "UPDATE Product SET image_hash = SHA2(image, 256) WHERE image IS NOT NULL AND image_hash IS NULL",
+                """
+                        UPDATE Product SET thumbnail_hash = SHA2(thumbnail, 256)
+                        WHERE thumbnail IS NOT NULL AND thumbnail_hash IS NULL
+                        """,
+
+                // One open LOW_STOCK alert per product: drop duplicates, then enforce with a unique key
+                """
+                        DELETE s1 FROM SystemMessage s1
+                        JOIN SystemMessage s2
+                          ON s1.related_product_id = s2.related_product_id
+                         AND s1.message_type = s2.message_type
+                         AND s1.is_read = FALSE AND s2.is_read = FALSE
+                         AND s1.id < s2.id
+                        """,
+                """
+                        ALTER TABLE SystemMessage ADD COLUMN open_key VARCHAR(80)
+                            AS (IF(is_read, NULL, CONCAT(message_type, ':', related_product_id))) STORED
+                        """,
+                "CREATE UNIQUE INDEX uq_sysmsg_open_key ON SystemMessage(open_key)",
 
                 // Create tables if not exist (from schema_updates.sql)
                 // CarrierRating
@@ -43,6 +68,23 @@ public class SchemaFixer {
                             FOREIGN KEY (order_id) REFERENCES Orders(order_id) ON DELETE CASCADE
                         )
                         """,
+                // InvoiceBlob - compressed invoice parts keyed by SHA-256 of the raw bytes
+                """
+                        CREATE TABLE IF NOT EXISTS InvoiceBlob (
+                            content_hash CHAR(64) PRIMARY KEY,
+                            codec VARCHAR(20) NOT NULL,
+                            raw_size INT NOT NULL,
+                            data LONGBLOB NOT NULL,
+                            created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                        )
+                        """,
+                "ALTER TABLE Invoice ADD COLUMN pdf_hash CHAR(64) NULL",
+                "ALTER TABLE Invoice ADD COLUMN content_hash CHAR(64) NULL",
+                "ALTER TABLE Invoice ADD COLUMN log_hash CHAR(64) NULL",
+                "ALTER TABLE Invoice ADD COLUMN archived BOOLEAN DEFAULT FALSE",
+                "CREATE INDEX idx_invoice_archived ON Invoice(archived, invoice_id)",
+                // Order status the stored PDF was rendered for
+                "ALTER TABLE Invoice ADD COLUMN order_status VARCHAR(20) NULL",
                 // OrderStatusHistory
                 """
                         CREATE TABLE IF NOT EXISTS OrderStatusHistory (
@@ -96,6 +138,30 @@ public class SchemaFixer {
                             created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                             updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
                         )
+                        """,
+                // LoyaltyLedger - append-only point changes, folded into CustomerLoyalty
+                """
+                        CREATE TABLE IF NOT EXISTS LoyaltyLedger (
+                            entry_id INT AUTO_INCREMENT PRIMARY KEY,
+                            username VARCHAR(50) NOT NULL,
+                            points_delta INT NOT NULL,
+                            amount DECIMAL(12,2) DEFAULT 0,
+                            reason VARCHAR(20) NOT NULL,
+                            order_id INT NULL,
+                            applied BOOLEAN DEFAULT FALSE,
+                            created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                            INDEX idx_ledger_pending (applied, entry_id),
+                            INDEX idx_ledger_user (username, applied)
+                        )
+                        """,
+                // Leaderboard order (top-K load and rank counts)
+                "CREATE INDEX idx_loyalty_points ON CustomerLoyalty(points, username)",
+                // Opening balances, so SUM(applied deltas) = CustomerLoyalty.points from the start
+                """
+                        INSERT INTO LoyaltyLedger(username, points_delta, amount, reason, applied)
+                        SELECT username, points, total_spent, 'OPENING', TRUE
+                        FROM CustomerLoyalty
+                        WHERE NOT EXISTS (SELECT 1 FROM LoyaltyLedger)
                         """
         };
 
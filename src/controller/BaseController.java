@@ -1,6 +1,5 @@
 package controller;
 
-import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Label;
@@ -53,8 +52,7 @@ public abstract class BaseController {
             Stage stage = (Stage) label.getScene().getWindow();
             boolean wasMaximized = stage.isMaximized();
 
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/login.fxml"));
-            Scene scene = new Scene(loader.load(), 960, 540);
+            Scene scene = new Scene(ViewRegistry.load("/view/login.fxml").root(), 960, 540);
 
             applyStylesheet(scene);
 
@@ -76,8 +74,7 @@ public abstract class BaseController {
             Stage stage = (Stage) label.getScene().getWindow();
             boolean wasMaximized = stage.isMaximized();
 
-            FXMLLoader loader = new FXMLLoader(getClass().getResource(fxmlPath));
-            Scene scene = new Scene(loader.load(), 960, 540);
+            Scene scene = new Scene(ViewRegistry.load(fxmlPath).root(), 960, 540);
             applyStylesheet(scene);
 
             stage.setTitle(title);
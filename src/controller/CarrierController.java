@@ -10,6 +10,7 @@ import javafx.scene.layout.GridPane;
 import javafx.stage.Stage;
 import model.Order;
 import model.OrderDetail;
+import util.DateFormats;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
@@ -85,7 +86,7 @@ public class CarrierController extends BaseController {
     @FXML
     private Label completedInfoLabel;
 
-    private static final DateTimeFormatter DT_FMT = DateTimeFormatter.ofPattern("MM-dd HH:mm");
+    private static final DateTimeFormatter DT_FMT = DateFormats.SHORT;
 
     @Override
     public void setUsername(String username) {
@@ -218,7 +219,7 @@ public class CarrierController extends BaseController {
                 .setText("Address: " + (od.getCustomerAddress() != null ? od.getCustomerAddress() : "Not provided"));
         detailPhoneLabel.setText("Phone: " + (od.getCustomerPhone() != null ? od.getCustomerPhone() : "Not provided"));
         detailDeliveryLabel.setText("Delivery: " + (od.getRequestedDelivery() != null
-                ? od.getRequestedDelivery().toLocalDateTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"))
+                ? od.getRequestedDelivery().toLocalDateTime().format(DateFormats.MINUTES)
                 : "-"));
         detailTotalLabel.setText("Total (VAT inc): " + String.format("%.2f TL", od.getTotalVatIncluded()));
 
@@ -305,7 +306,7 @@ public class CarrierController extends BaseController {
         LocalDateTime orderTime = (orderCreatedAt != null) ? orderCreatedAt.toLocalDateTime() : now.minusHours(1);
 
         Label infoLabel = new Label(
-                "Order placed: " + orderTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")));
+                "Order placed: " + orderTime.format(DateFormats.MINUTES));
         infoLabel.setStyle("-fx-text-fill: #E2E8F0; -fx-font-size: 11;");
 
         ComboBox<String> dateCombo = new ComboBox<>();
@@ -1,8 +1,12 @@
 package controller;
 
+import dao.AsyncDAO;
 import dao.OrderDAO;
 import dao.CustomerLoyaltyDAO;
+import service.CouponService;
+import service.PricingEngine;
 import service.InvoiceService;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -15,6 +19,7 @@ import model.Product;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -121,6 +126,22 @@ public class CartController extends BaseController {
         titleLabel.setText("Shopping Cart - " + username);
         rebuildUiListFromMap();
         updateTotals();
+        loadLoyaltyBalance();
+    }
+
+    // Ledger balance, so points from orders not yet folded in are included
+    private void loadLoyaltyBalance() {
+        if (loyaltyLabel == null)
+            return;
+        String username = currentUsername;
+        AsyncDAO.supply("loyaltyBalance", () -> CustomerLoyaltyDAO.getBalance(username))
+                .whenComplete((points, error) -> Platform.runLater(() -> {
+                    if (error != null) {
+                        error.printStackTrace();
+                        return;
+                    }
+                    loyaltyLabel.setText(String.format("Loyalty points: %d", points));
+                }));
     }
 
     private void rebuildUiListFromMap() {
@@ -131,8 +152,8 @@ public class CartController extends BaseController {
         for (CustomerController.LocalCartItem local : cartMapRef.values()) {
             Product p = local.getProduct();
 
-            // CRITICAL: Use getEffectivePrice() for unitPrice
-            double effectivePrice = p.getEffectivePrice();
+            // CRITICAL: Use the effective price (with volume tiers) for unitPrice
+            double effectivePrice = PricingEngine.unitPrice(p, local.getKg());
 
             cartItems.add(new CartItem(
                     p.getProductId(),
@@ -194,8 +215,8 @@ public class CartController extends BaseController {
             return;
         }
 
-        // Validate coupon using CouponDAO
-        model.Coupon coupon = dao.CouponDAO.getCouponByCode(code);
+        // Validate coupon (cached lookup; the usage cap is enforced again at checkout)
+        model.Coupon coupon = CouponService.getCoupon(code);
 
         if (coupon == null) {
             showCouponInfo("Invalid coupon code!", true);
@@ -247,9 +268,9 @@ public class CartController extends BaseController {
 
         // Apply discount
         appliedCoupon = coupon;
-        appliedDiscount = subtotal * (coupon.getDiscountPercent() / 100.0);
+        appliedDiscount = PricingEngine.couponDiscount(subtotal, List.of(coupon));
 
-        showCouponInfo(String.format("✅ %s applied! (%.0f%% off)", code, coupon.getDiscountPercent()), false);
+        showCouponInfo(String.format("✅ %s applied! (-%.2f TL)", code, appliedDiscount), false);
         if (discountLabel != null) {
             discountLabel.setText(String.format("Coupon: -%.2f TL", appliedDiscount));
         }
@@ -351,6 +372,18 @@ public class CartController extends BaseController {
         if (res.isEmpty() || res.get() != ok)
             return;
 
+        // Reserve the coupon use before placing the order so it cannot be over-redeemed
+        if (appliedCoupon != null && !CouponService.reserveUse(appliedCoupon.getCode())) {
+            showCouponInfo("Coupon usage limit reached!", true);
+            appliedCoupon = null;
+            appliedDiscount = 0;
+            if (discountLabel != null)
+                discountLabel.setText("");
+            updateTotals();
+            showInfoLabel(infoLabel, "Coupon is no longer available. Please review your total.", true);
+            return;
+        }
+
         // Create order - CartItem.unitPrice is already getEffectivePrice
         boolean saved = OrderDAO.createCartOrder(
                 currentUsername,
@@ -359,14 +392,13 @@ public class CartController extends BaseController {
                 cartItems);
 
         if (!saved) {
+            if (appliedCoupon != null)
+                CouponService.releaseUse(appliedCoupon.getCode());
             showInfoLabel(infoLabel, "Checkout failed! (DB insert/stock issue)", true);
             return;
         }
 
-        if (appliedCoupon != null) {
-            dao.CouponDAO.useCoupon(appliedCoupon.getCode());
-            appliedCoupon = null;
-        }
+        appliedCoupon = null;
 
         cartItems.clear();
         if (cartMapRef != null)
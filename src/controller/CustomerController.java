@@ -1,9 +1,10 @@
 package controller;
 
+import dao.AsyncProductDAO;
 import dao.MessageDAO;
 import dao.ProductDAO;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -14,9 +15,11 @@ import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
 import model.Product;
+import service.PricingEngine;
 
 import java.io.ByteArrayInputStream;
 import java.util.Comparator; // Added for sorting
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ArrayList; // Added for mutable list
@@ -71,6 +74,9 @@ public class CustomerController extends BaseController {
     // Currently selected product
     private Product selectedProduct = null;
 
+    // Decoded card images by thumbnail hash, reused across searches and sorts
+    private final Map<String, Image> cardImages = new HashMap<>();
+
     // ========== POLYMORPHISM: Override abstract methods ==========
 
     @Override
@@ -162,10 +168,10 @@ public class CustomerController extends BaseController {
 
         switch (criteria) {
             case "Price (Low to High)":
-                list.sort(Comparator.comparingDouble(Product::getEffectivePrice));
+                PricingEngine.sortByPrice(list, false);
                 break;
             case "Price (High to Low)":
-                list.sort(Comparator.comparingDouble(Product::getEffectivePrice).reversed());
+                PricingEngine.sortByPrice(list, true);
                 break;
             case "Name (A-Z)":
             default:
@@ -177,10 +183,60 @@ public class CustomerController extends BaseController {
     private void populateFlowPane(FlowPane flowPane, List<Product> products) {
         flowPane.getChildren().clear();
 
+        Map<Integer, VBox> cards = new LinkedHashMap<>();
+        List<Product> missing = new ArrayList<>();
         for (Product product : products) {
             VBox card = createProductCard(product);
+            if (!cardImages.containsKey(product.getThumbnailHash())) {
+                cards.put(product.getProductId(), card);
+                missing.add(product);
+            }
             flowPane.getChildren().add(card);
         }
+        loadCardImages(flowPane, missing, cards);
+    }
+
+    // Cards without a decoded image start with their emoji; the images are
+    // fetched together in the background (cache first, then one query) and
+    // swapped in
+    private void loadCardImages(FlowPane flowPane, List<Product> products, Map<Integer, VBox> cards) {
+        if (products.isEmpty())
+            return;
+
+        Map<Integer, String> hashes = new HashMap<>();
+        for (Product p : products) {
+            hashes.put(p.getProductId(), p.getThumbnailHash());
+        }
+
+        AsyncProductDAO.getCardImages(products).whenComplete((images, error) -> {
+            if (error != null) {
+                error.printStackTrace();
+                return;
+            }
+            Map<Integer, Image> decoded = new LinkedHashMap<>();
+            images.forEach((id, bytes) -> {
+                Image image = new Image(new ByteArrayInputStream(bytes));
+                if (!image.isError())
+                    decoded.put(id, image);
+            });
+            Platform.runLater(() -> decoded.forEach((id, image) -> {
+                String hash = hashes.get(id);
+                if (hash != null)
+                    cardImages.put(hash, image);
+                VBox card = cards.get(id);
+                // Skip cards a newer search or sort has already replaced
+                if (card != null && card.getParent() == flowPane)
+                    card.getChildren().set(0, cardImageView(image));
+            }));
+        });
+    }
+
+    private ImageView cardImageView(Image image) {
+        ImageView imageView = new ImageView(image);
+        imageView.setFitWidth(90);
+        imageView.setFitHeight(70);
+        imageView.setPreserveRatio(true);
+        return imageView;
     }
 
     private VBox createProductCard(Product product) {
@@ -197,18 +253,11 @@ public class CustomerController extends BaseController {
 
         javafx.scene.Node imageNode;
 
-        if (product.getImage() != null && product.getImage().length > 0) {
-            ImageView imageView = new ImageView();
-            imageView.setFitWidth(90);
-            imageView.setFitHeight(70);
-            imageView.setPreserveRatio(true);
-            try {
-                imageView.setImage(new Image(new ByteArrayInputStream(product.getImage())));
-            } catch (Exception e) {
-                imageView.setImage(null);
-            }
-            imageNode = imageView;
+        Image cardImage = cardImages.get(product.getThumbnailHash());
+        if (cardImage != null) {
+            imageNode = cardImageView(cardImage);
         } else {
+            // Replaced by the image once loadCardImages has it
             String emoji = getProductEmoji(product.getName(), product.getType());
             Label emojiLabel = new Label(emoji);
             emojiLabel.setStyle("-fx-font-size: 38;");
@@ -223,7 +272,7 @@ public class CustomerController extends BaseController {
         nameLabel.setMaxWidth(140);
         nameLabel.setAlignment(Pos.CENTER);
 
-        double effectivePrice = product.getEffectivePrice();
+        double effectivePrice = PricingEngine.price(product);
         double originalPrice = product.getOriginalPrice();
         double discountPercent = product.getDiscountPercent();
         boolean isOutOfStock = product.getStock() == 0;
@@ -299,7 +348,7 @@ public class CustomerController extends BaseController {
 
         productNameLabel.setText(product.getName());
 
-        double effectivePrice = product.getEffectivePrice();
+        double effectivePrice = PricingEngine.price(product);
         boolean isLowStock = product.getStock() <= product.getThreshold();
 
         if (isLowStock) {
@@ -393,10 +442,10 @@ public class CustomerController extends BaseController {
     @FXML
     private void handleOpenCart() {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/cart.fxml"));
-            Scene scene = new Scene(loader.load(), 850, 550);
+            ViewRegistry.View<CartController> view = ViewRegistry.load("/view/cart.fxml");
+            Scene scene = new Scene(view.root(), 850, 550);
 
-            CartController cc = loader.getController();
+            CartController cc = view.controller();
             cc.init(currentUsername, cart);
 
             Stage stage = new Stage();
@@ -414,10 +463,10 @@ public class CustomerController extends BaseController {
     @FXML
     private void handleMyOrders() {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/myorders.fxml"));
-            Scene scene = new Scene(loader.load(), 1000, 600);
+            ViewRegistry.View<MyOrdersController> view = ViewRegistry.load("/view/myorders.fxml");
+            Scene scene = new Scene(view.root(), 1000, 600);
 
-            MyOrdersController c = loader.getController();
+            MyOrdersController c = view.controller();
             c.setUsername(currentUsername);
 
             Stage stage = new Stage();
@@ -435,10 +484,10 @@ public class CustomerController extends BaseController {
     @FXML
     private void handleMessages() {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/messages.fxml"));
-            Scene scene = new Scene(loader.load(), 800, 500);
+            ViewRegistry.View<MessagesController> view = ViewRegistry.load("/view/messages.fxml");
+            Scene scene = new Scene(view.root(), 800, 500);
 
-            MessagesController c = loader.getController();
+            MessagesController c = view.controller();
             c.setUsername(currentUsername);
 
             Stage stage = new Stage();
@@ -456,10 +505,10 @@ public class CustomerController extends BaseController {
     @FXML
     private void handleEditProfile() {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/profile.fxml"));
-            Scene scene = new Scene(loader.load(), 450, 350);
+            ViewRegistry.View<ProfileController> view = ViewRegistry.load("/view/profile.fxml");
+            Scene scene = new Scene(view.root(), 450, 350);
 
-            ProfileController controller = loader.getController();
+            ProfileController controller = view.controller();
             controller.setUsername(currentUsername);
 
             Stage stage = new Stage();
@@ -507,11 +556,11 @@ public class CustomerController extends BaseController {
         }
 
         /**
-         * Get effective price (2x if low stock).
+         * Get effective price (2x if low stock), from PricingEngine.
          * This ensures price_at_time in OrderItems uses getEffectivePrice.
          */
         public double getEffectivePrice() {
-            return product.getEffectivePrice();
+            return PricingEngine.price(product);
         }
     }
 
@@ -695,10 +744,10 @@ public class CustomerController extends BaseController {
 
     private void openProfileEditor() {
         try {
-            javafx.fxml.FXMLLoader loader = new javafx.fxml.FXMLLoader(getClass().getResource("/view/profile.fxml"));
-            javafx.scene.Scene scene = new javafx.scene.Scene(loader.load());
+            ViewRegistry.View<ProfileController> view = ViewRegistry.load("/view/profile.fxml");
+            javafx.scene.Scene scene = new javafx.scene.Scene(view.root());
 
-            controller.ProfileController controller = loader.getController();
+            controller.ProfileController controller = view.controller();
             controller.setUsername(currentUsername);
 
             javafx.stage.Stage profileStage = new javafx.stage.Stage();
@@ -0,0 +1,109 @@
+package controller;
+
+import javafx.application.Platform;
+import javafx.scene.control.Label;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Loads the sections of a tabbed dashboard off the FX thread.
+ *
+ * Each section is an async load (usually through the dao.Async* API) plus a
+ * render step. The selected tab is loaded first, with all its sections
+ * started at once; every other tab is loaded the first time it is selected.
+ * Sections render on the FX thread as soon as their own data arrives, so a
+ * tab appears in the time of its slowest query rather than the sum.
+ *
+ * Sections added with addAlways (header widgets) load with every round,
+ * whatever tab is selected.
+ *
+ * refresh() reloads the selected tab and marks the others stale; results
+ * of an older round are dropped.
+ */
+public class DashboardLoader {
+
+    private final TabPane tabPane;
+    private final Map<Tab, List<Runnable>> sections = new LinkedHashMap<>();
+    private final List<Runnable> always = new ArrayList<>();
+    private final Set<Tab> loaded = new HashSet<>();
+    private int round = 0;
+
+    public DashboardLoader(TabPane tabPane) {
+        this.tabPane = tabPane;
+    }
+
+    /**
+     * Register a section of {@code tab}.
+     *
+     * @param errorLabel where a failed load is reported; may be null
+     */
+    public <T> void add(Tab tab, String name, Supplier<CompletableFuture<T>> load, Consumer<T> render,
+            Label errorLabel) {
+        sections.computeIfAbsent(tab, t -> new ArrayList<>()).add(section(tab, name, load, render, errorLabel));
+    }
+
+    /**
+     * Register a section that is not part of any tab.
+     */
+    public <T> void addAlways(String name, Supplier<CompletableFuture<T>> load, Consumer<T> render) {
+        always.add(section(null, name, load, render, null));
+    }
+
+    private <T> Runnable section(Tab tab, String name, Supplier<CompletableFuture<T>> load, Consumer<T> render,
+            Label errorLabel) {
+        return () -> {
+            int started = round;
+            load.get().whenComplete((data, error) -> Platform.runLater(() -> {
+                if (started != round)
+                    return;
+                if (error != null) {
+                    error.printStackTrace();
+                    if (errorLabel != null) {
+                        errorLabel.setText("Could not load " + name + ".");
+                        errorLabel.setStyle("-fx-text-fill: red;");
+                    }
+                    // Allow another try on the next selection
+                    if (tab != null)
+                        loaded.remove(tab);
+                    return;
+                }
+                render.accept(data);
+            }));
+        };
+    }
+
+    /**
+     * Load the selected tab now and the others on first selection.
+     */
+    public void start() {
+        tabPane.getSelectionModel().selectedItemProperty().addListener((obs, old, tab) -> load(tab));
+        load(tabPane.getSelectionModel().getSelectedItem());
+        always.forEach(Runnable::run);
+    }
+
+    public void refresh() {
+        round++;
+        loaded.clear();
+        load(tabPane.getSelectionModel().getSelectedItem());
+        always.forEach(Runnable::run);
+    }
+
+    private void load(Tab tab) {
+        if (tab == null || !loaded.add(tab))
+            return;
+        List<Runnable> tabSections = sections.get(tab);
+        if (tabSections != null) {
+            tabSections.forEach(Runnable::run);
+        }
+    }
+}
@@ -1,9 +1,8 @@
 package controller;
 
-import dao.UserDAO;
 import javafx.animation.*;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.control.Label;
 import javafx.scene.control.PasswordField;
@@ -12,6 +11,8 @@ import javafx.scene.image.ImageView;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import javafx.util.Duration;
+import model.Person;
+import service.AuthService;
 
 /**
  * Controller for Login screen.
@@ -41,6 +42,9 @@ public class LoginController extends BaseController {
     @FXML
     private VBox formSection;
 
+    // Set while a login is being verified; repeated clicks are ignored
+    private boolean loggingIn = false;
+
     // ========== POLYMORPHISM: Override abstract methods from BaseController
     // ==========
 
@@ -142,6 +146,8 @@ public class LoginController extends BaseController {
 
     @FXML
     private void handleLogin() {
+        if (loggingIn)
+            return;
         messageLabel.setText("");
 
         String username = safeTrim(usernameField.getText());
@@ -152,32 +158,57 @@ public class LoginController extends BaseController {
             return;
         }
 
-        // Use authenticateAndGetPerson to get the user object with role
-        model.Person person = UserDAO.authenticateAndGetPerson(username, password);
+        loggingIn = true;
+        messageLabel.setText("Signing in...");
+
+        // Hash verification runs on the auth pool; finish on the FX thread
+        AuthService.login(username, password).whenComplete((person, error) -> Platform.runLater(() -> {
+            loggingIn = false;
+            messageLabel.setText("");
+            if (error != null) {
+                if (error instanceof AuthService.BusyException
+                        || error.getCause() instanceof AuthService.BusyException) {
+                    messageLabel.setText("Server busy, please try again.");
+                } else {
+                    error.printStackTrace();
+                    messageLabel.setText("Login failed!");
+                }
+                return;
+            }
+            openDashboard(username, person);
+        }));
+    }
 
-        System.out.println("  [LoginController] person = " + person);
+    private void openDashboard(String username, Person person) {
         if (person == null) {
-            System.out.println("  [LoginController] person is NULL - showing error");
             messageLabel.setText("Wrong username or password!");
             return;
         }
 
         try {
+            long start = System.nanoTime();
             String role = person.getRole().toLowerCase();
-            System.out.println(
-                    "  [LoginController] person.getRole() = '" + person.getRole() + "', lowercase = '" + role + "'");
             switch (role) {
                 case "customer":
                     openCustomer(username);
+                    // Windows a customer opens from the dashboard
+                    ViewRegistry.preload("/view/cart.fxml", "/view/myorders.fxml", "/view/messages.fxml",
+                            "/view/profile.fxml", "/view/login.fxml");
                     break;
                 case "carrier":
                     openCarrier(username);
+                    ViewRegistry.preload("/view/login.fxml");
                     break;
                 case "owner":
                     openOwner(username);
+                    ViewRegistry.preload("/view/login.fxml");
                     break;
                 default:
                     messageLabel.setText("Unknown role: " + role);
+                    return;
+            }
+            if (Boolean.getBoolean("greengrocer.timing")) {
+                System.out.printf("Opened %s dashboard in %d ms%n", role, (System.nanoTime() - start) / 1_000_000);
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -191,8 +222,7 @@ public class LoginController extends BaseController {
             Stage stage = (Stage) usernameField.getScene().getWindow();
             boolean wasMaximized = stage.isMaximized();
 
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/register.fxml"));
-            Scene scene = new Scene(loader.load(), 960, 540);
+            Scene scene = new Scene(ViewRegistry.load("/view/register.fxml").root(), 960, 540);
 
             applyStylesheet(scene);
 
@@ -209,12 +239,12 @@ public class LoginController extends BaseController {
         Stage stage = (Stage) usernameField.getScene().getWindow();
         boolean wasMaximized = stage.isMaximized();
 
-        FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/customer.fxml"));
-        Scene scene = new Scene(loader.load(), 960, 540);
+        ViewRegistry.View<CustomerController> view = ViewRegistry.load("/view/customer.fxml");
+        Scene scene = new Scene(view.root(), 960, 540);
 
         applyStylesheet(scene);
 
-        CustomerController controller = loader.getController();
+        CustomerController controller = view.controller();
         controller.setUsername(username);
 
         stage.setTitle("Group30 GreenGrocer");
@@ -226,12 +256,12 @@ public class LoginController extends BaseController {
         Stage stage = (Stage) usernameField.getScene().getWindow();
         boolean wasMaximized = stage.isMaximized();
 
-        FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/carrier.fxml"));
-        Scene scene = new Scene(loader.load(), 960, 540);
+        ViewRegistry.View<CarrierController> view = ViewRegistry.load("/view/carrier.fxml");
+        Scene scene = new Scene(view.root(), 960, 540);
 
         applyStylesheet(scene);
 
-        CarrierController controller = loader.getController();
+        CarrierController controller = view.controller();
         controller.setUsername(username);
 
         stage.setTitle("Group30 GreenGrocer");
@@ -243,12 +273,12 @@ public class LoginController extends BaseController {
         Stage stage = (Stage) usernameField.getScene().getWindow();
         boolean wasMaximized = stage.isMaximized();
 
-        FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/owner.fxml"));
-        Scene scene = new Scene(loader.load(), 960, 540);
+        ViewRegistry.View<OwnerController> view = ViewRegistry.load("/view/owner.fxml");
+        Scene scene = new Scene(view.root(), 960, 540);
 
         applyStylesheet(scene);
 
-        OwnerController controller = loader.getController();
+        OwnerController controller = view.controller();
         controller.setUsername(username);
 
         stage.setTitle("Group30 GreenGrocer");
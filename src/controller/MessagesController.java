@@ -8,6 +8,7 @@ import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.GridPane;
 import javafx.stage.Stage;
 import model.Message;
+import util.DateFormats;
 
 import java.sql.Timestamp;
 import java.time.format.DateTimeFormatter;
@@ -55,7 +56,7 @@ public class MessagesController extends BaseController {
     @FXML
     private Label msgInfoLabel;
 
-    private static final DateTimeFormatter DT_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final DateTimeFormatter DT_FMT = DateFormats.MINUTES;
 
     private Message selectedMessage;
 
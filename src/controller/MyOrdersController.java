@@ -12,6 +12,7 @@ import javafx.scene.layout.GridPane;
 import javafx.stage.Stage;
 import model.OrderDetail;
 import model.OrderStatusHistory;
+import util.DateFormats;
 
 import java.sql.Timestamp;
 import java.time.format.DateTimeFormatter;
@@ -80,7 +81,7 @@ public class MyOrdersController extends BaseController {
     @FXML
     private Label historyInfoLabel;
 
-    private static final DateTimeFormatter DT_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final DateTimeFormatter DT_FMT = DateFormats.MINUTES;
 
     private List<OrderDetail> allOrders;
 
@@ -277,7 +278,7 @@ public class MyOrdersController extends BaseController {
             return;
         }
 
-        String invoiceText = InvoiceService.getInvoiceText(selected.getOrderId());
+        String invoiceText = InvoiceService.getInvoiceText(selected.getOrderId(), selected.getStatus());
 
         TextArea textArea = new TextArea(invoiceText);
         textArea.setEditable(false);
@@ -307,7 +308,8 @@ public class MyOrdersController extends BaseController {
             java.io.File file = fileChooser.showSaveDialog(orderTable.getScene().getWindow());
             if (file != null) {
                 try {
-                    service.PdfInvoiceService.generatePdfInvoice(selected.getOrderId(), file.getAbsolutePath());
+                    service.PdfInvoiceService.generatePdfInvoice(selected.getOrderId(), selected.getStatus(),
+                            file.getAbsolutePath());
                     showInfoLabel(orderInfoLabel, "Invoice exported as PDF ✅", false);
                 } catch (Exception e) {
                     e.printStackTrace();
@@ -1,21 +1,30 @@
 package controller;
 
 import dao.*;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.scene.chart.*;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.GridPane;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import model.*;
+import service.CatalogImportService;
+import service.CouponCampaignService;
+import service.LoyaltyLeaderboard;
+import util.DateFormats;
 
+import java.io.File;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controller for Owner dashboard with full management features.
@@ -30,6 +39,20 @@ public class OwnerController extends BaseController {
     private Label messageCountLabel;
     @FXML
     private TabPane mainTabPane;
+    @FXML
+    private Tab productsTab;
+    @FXML
+    private Tab carriersTab;
+    @FXML
+    private Tab ordersTab;
+    @FXML
+    private Tab messagesTab;
+    @FXML
+    private Tab couponsTab;
+    @FXML
+    private Tab alertsTab;
+    @FXML
+    private Tab reportsTab;
 
     // Products Tab
     @FXML
@@ -152,16 +175,33 @@ public class OwnerController extends BaseController {
     private Label statLowStockLabel;
     @FXML
     private ListView<String> topCarriersList;
+    @FXML
+    private ListView<String> topCustomersList;
 
-    private static final DateTimeFormatter DT_FMT = DateTimeFormatter.ofPattern("MM-dd HH:mm");
+    private static final DateTimeFormatter DT_FMT = DateFormats.SHORT;
     private Message selectedMessage;
     private List<OrderDetail> allOrders;
 
+    private DashboardLoader dashboard;
+    // All orders for the current round; shared by the Orders and Reports tabs
+    private CompletableFuture<List<OrderDetail>> ordersLoad;
+
+    private record MessagesData(List<Message> messages, int unread) {
+    }
+
+    private record AlertsData(List<SystemMessageDAO.SystemMessage> messages, int unread) {
+    }
+
+    private record ReportData(Map<String, Integer> statusCounts, Map<String, Integer> dailyOrders,
+            List<OrderDetail> orders, int activeCarriers, int lowStock,
+            List<CarrierRatingDAO.CarrierRatingSummary> topCarriers, List<CustomerLoyalty> topCustomers) {
+    }
+
     @Override
     public void setUsername(String username) {
         this.currentUsername = username;
         usernameLabel.setText("Owner: " + username);
-        loadAll();
+        dashboard.start();
     }
 
     @Override
@@ -192,9 +232,52 @@ public class OwnerController extends BaseController {
         clearInfoLabel(orderInfoLabel);
         clearInfoLabel(msgInfoLabel);
         clearInfoLabel(couponInfoLabel);
+
+        setupDashboard();
+    }
+
+    /**
+     * Tab loaders. Each tab loads when first shown (the selected one right
+     * away); its queries run in parallel through the async DAOs.
+     */
+    private void setupDashboard() {
+        dashboard = new DashboardLoader(mainTabPane);
+
+        dashboard.add(productsTab, "products", AsyncProductDAO::getAllProducts, this::renderProducts,
+                productInfoLabel);
+        dashboard.add(carriersTab, "carriers", () -> AsyncDAO.supply("loadCarriers", this::fetchCarriers),
+                this::renderCarriers, carrierInfoLabel);
+        dashboard.add(ordersTab, "orders", this::sharedOrders, this::renderOrders, orderInfoLabel);
+        dashboard.add(messagesTab, "messages", () -> AsyncDAO.supply("loadMessages", this::fetchMessages),
+                this::renderMessages, msgInfoLabel);
+        dashboard.add(couponsTab, "coupons", () -> AsyncDAO.supply("loadCoupons", CouponDAO::getAllCoupons),
+                this::renderCoupons, couponInfoLabel);
+        dashboard.add(alertsTab, "alerts", () -> AsyncDAO.supply("loadAlerts", this::fetchAlerts),
+                this::renderAlerts, alertInfoLabel);
+        dashboard.add(reportsTab, "reports", this::fetchReports, this::renderReports, null);
+
+        // Unread badge in the header, whatever tab is open
+        dashboard.addAlways("unread count",
+                () -> AsyncDAO.supply("unreadCount", () -> MessageDAO.getUnreadCount(currentUsername)),
+                this::renderUnreadCount);
+    }
+
+    private CompletableFuture<List<OrderDetail>> sharedOrders() {
+        if (ordersLoad == null)
+            ordersLoad = AsyncOrderDAO.getAllOrderDetails();
+        return ordersLoad;
+    }
+
+    private void refreshDashboard() {
+        ordersLoad = null;
+        UserDirectory.invalidate();
+        LoyaltyLeaderboard.invalidate();
+        dashboard.refresh();
     }
 
     private void setupProductTable() {
+        // Several rows can be deleted at once; the other actions use the focused one
+        productTable.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
         prodIdCol.setCellValueFactory(new PropertyValueFactory<>("productId"));
         prodNameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
         prodTypeCol.setCellValueFactory(new PropertyValueFactory<>("type"));
@@ -402,40 +485,51 @@ public class OwnerController extends BaseController {
         });
     }
 
-    private void loadAll() {
-        loadProducts();
-        loadCarriers();
-        loadOrders();
-        loadMessages();
-        loadCoupons();
-        loadReports();
+    private void loadProducts() {
+        renderProducts(ProductDAO.getAllProducts());
     }
 
-    private void loadProducts() {
-        productTable.setItems(FXCollections.observableArrayList(ProductDAO.getAllProducts()));
+    private void renderProducts(List<Product> products) {
+        productTable.setItems(FXCollections.observableArrayList(products));
     }
 
     private void loadCarriers() {
+        renderCarriers(fetchCarriers());
+    }
+
+    private List<CarrierInfo> fetchCarriers() {
         List<Carrier> carriers = UserDAO.getAllCarriers();
-        List<CarrierInfo> infoList = carriers.stream().map(c -> {
+        return carriers.stream().map(c -> {
             double rating = CarrierRatingDAO.getCarrierAverageRating(c.getUsername());
             int count = CarrierRatingDAO.getCarrierRatingCount(c.getUsername());
             return new CarrierInfo(c.getUsername(), c.getPhone(), c.getAddress(), rating, count);
         }).toList();
+    }
 
+    private void renderCarriers(List<CarrierInfo> infoList) {
         carrierTable.setItems(FXCollections.observableArrayList(infoList));
     }
 
-    private void loadOrders() {
-        allOrders = OrderDAO.getAllOrderDetails();
+    private void renderOrders(List<OrderDetail> orders) {
+        allOrders = orders;
         allOrdersTable.setItems(FXCollections.observableArrayList(allOrders));
     }
 
     private void loadMessages() {
-        List<Message> messages = MessageDAO.getReceivedMessages(currentUsername);
-        messagesTable.setItems(FXCollections.observableArrayList(messages));
+        renderMessages(fetchMessages());
+    }
+
+    private MessagesData fetchMessages() {
+        return new MessagesData(MessageDAO.getReceivedMessages(currentUsername),
+                MessageDAO.getUnreadCount(currentUsername));
+    }
 
-        int unread = MessageDAO.getUnreadCount(currentUsername);
+    private void renderMessages(MessagesData data) {
+        messagesTable.setItems(FXCollections.observableArrayList(data.messages()));
+        renderUnreadCount(data.unread());
+    }
+
+    private void renderUnreadCount(int unread) {
         if (unread > 0) {
             messageCountLabel.setText("📬 " + unread + " unread");
         } else {
@@ -444,13 +538,37 @@ public class OwnerController extends BaseController {
     }
 
     private void loadCoupons() {
-        couponTable.setItems(FXCollections.observableArrayList(CouponDAO.getAllCoupons()));
+        renderCoupons(CouponDAO.getAllCoupons());
         loadAlerts();
     }
 
-    private void loadReports() {
+    private void renderCoupons(List<Coupon> coupons) {
+        couponTable.setItems(FXCollections.observableArrayList(coupons));
+    }
+
+    /**
+     * All report queries at once; completes when the last one does.
+     */
+    private CompletableFuture<ReportData> fetchReports() {
+        CompletableFuture<Map<String, Integer>> statusCounts = AsyncOrderDAO.getOrderStatusCounts();
+        CompletableFuture<Map<String, Integer>> dailyOrders = AsyncOrderDAO.getDailyOrderCounts(7);
+        CompletableFuture<List<OrderDetail>> orders = sharedOrders();
+        CompletableFuture<Integer> activeCarriers = AsyncDAO.supply("carrierCount", UserDAO::getCarrierCount);
+        CompletableFuture<List<Product>> lowStock = AsyncProductDAO.getLowStockProducts();
+        CompletableFuture<List<CarrierRatingDAO.CarrierRatingSummary>> topCarriers = AsyncDAO
+                .supply("carrierRatings", CarrierRatingDAO::getAllCarrierRatings);
+        CompletableFuture<List<CustomerLoyalty>> topCustomers = AsyncDAO
+                .supply("topCustomers", () -> LoyaltyLeaderboard.getTop(10));
+
+        return CompletableFuture.allOf(statusCounts, dailyOrders, orders, activeCarriers, lowStock, topCarriers,
+                topCustomers)
+                .thenApply(v -> new ReportData(statusCounts.join(), dailyOrders.join(), orders.join(),
+                        activeCarriers.join(), lowStock.join().size(), topCarriers.join(), topCustomers.join()));
+    }
+
+    private void renderReports(ReportData data) {
         // Status Pie Chart
-        Map<String, Integer> statusCounts = OrderDAO.getOrderStatusCounts();
+        Map<String, Integer> statusCounts = data.statusCounts();
         statusPieChart.getData().clear();
         for (Map.Entry<String, Integer> entry : statusCounts.entrySet()) {
             statusPieChart.getData()
@@ -458,7 +576,7 @@ public class OwnerController extends BaseController {
         }
 
         // Daily Orders Line Chart
-        Map<String, Integer> dailyOrders = OrderDAO.getDailyOrderCounts(7);
+        Map<String, Integer> dailyOrders = data.dailyOrders();
         XYChart.Series<String, Number> series = new XYChart.Series<>();
         series.setName("Orders");
         for (Map.Entry<String, Integer> entry : dailyOrders.entrySet()) {
@@ -471,12 +589,13 @@ public class OwnerController extends BaseController {
         }
 
         // Statistics - shorter text to prevent truncation
-        int totalOrders = allOrders != null ? allOrders.size() : 0;
-        double totalRevenue = allOrders != null ? allOrders.stream()
+        List<OrderDetail> orders = data.orders();
+        int totalOrders = orders.size();
+        double totalRevenue = orders.stream()
                 .filter(o -> !"CANCELLED".equalsIgnoreCase(o.getStatus()))
-                .mapToDouble(OrderDetail::getTotalVatIncluded).sum() : 0;
-        int activeCarriers = UserDAO.getAllCarriers().size();
-        int lowStock = ProductDAO.getLowStockProducts().size();
+                .mapToDouble(OrderDetail::getTotalVatIncluded).sum();
+        int activeCarriers = data.activeCarriers();
+        int lowStock = data.lowStock();
 
         statTotalOrdersLabel.setText(String.valueOf(totalOrders));
         statTotalRevenueLabel.setText(String.format("%.0f TL", totalRevenue));
@@ -485,11 +604,21 @@ public class OwnerController extends BaseController {
 
         // Top Carriers
         topCarriersList.getItems().clear();
-        List<CarrierRatingDAO.CarrierRatingSummary> topCarriers = CarrierRatingDAO.getAllCarrierRatings();
+        List<CarrierRatingDAO.CarrierRatingSummary> topCarriers = data.topCarriers();
         for (CarrierRatingDAO.CarrierRatingSummary cs : topCarriers) {
             topCarriersList.getItems().add(String.format("%s - %.1f ⭐ (%d reviews)",
                     cs.getCarrierUsername(), cs.getAverageRating(), cs.getRatingCount()));
         }
+
+        // Top Customers (in-memory leaderboard)
+        if (topCustomersList != null) {
+            topCustomersList.getItems().clear();
+            int rank = 1;
+            for (CustomerLoyalty cl : data.topCustomers()) {
+                topCustomersList.getItems().add(String.format("#%d %s - %d pts (%s)",
+                        rank++, cl.getUsername(), cl.getPoints(), cl.getTierName()));
+            }
+        }
     }
 
     // ========== PRODUCT HANDLERS ==========
@@ -592,8 +721,9 @@ public class OwnerController extends BaseController {
                     if (threshold < 1)
                         threshold = 1;
 
-                    // Auto-load image from images_market folder
-                    byte[] imageData = util.ImageUtil.loadProductImage(name);
+                    // Auto-load image from images_market folder, scaled and re-encoded
+                    util.ImageTranscoder.Renditions imageData = util.ImageTranscoder
+                            .transcode(util.ImageUtil.loadProductImage(name));
                     if (imageData != null) {
                         ProductDAO.addProduct(name, price, stock, type, threshold, imageData);
                         System.out.println("✅ Product added with image: " + name);
@@ -621,6 +751,62 @@ public class OwnerController extends BaseController {
         }
     }
 
+    /**
+     * Bulk add/reprice/restock from a CSV: dry run first, apply on confirm.
+     */
+    @FXML
+    private void handleImportCatalog() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import Catalog CSV");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv"));
+        File file = chooser.showOpenDialog(productTable.getScene().getWindow());
+        if (file == null)
+            return;
+
+        showInfoLabel(productInfoLabel, "Checking " + file.getName() + "...", false);
+        runImport(file, true).thenAccept(dryRun -> Platform.runLater(() -> {
+            if (dryRun == null)
+                return;
+
+            Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
+            confirm.setTitle("Import Catalog");
+            confirm.setHeaderText("Apply " + file.getName() + "?");
+            TextArea details = new TextArea(dryRun.summary());
+            details.setEditable(false);
+            details.setWrapText(true);
+            confirm.getDialogPane().setContent(details);
+
+            Optional<ButtonType> result = confirm.showAndWait();
+            if (result.isEmpty() || result.get() != ButtonType.OK) {
+                showInfoLabel(productInfoLabel, "Import cancelled.", false);
+                return;
+            }
+
+            showInfoLabel(productInfoLabel, "Importing " + file.getName() + "...", false);
+            runImport(file, false).thenAccept(report -> Platform.runLater(() -> {
+                if (report == null)
+                    return;
+                showInfoLabel(productInfoLabel, String.format("Imported: %d added, %d updated, %d restocked, %d rejected",
+                        report.getAdded(), report.getRepriced(), report.getRestocked(), report.getErrors().size()),
+                        !report.getErrors().isEmpty());
+                loadProducts();
+            }));
+        }));
+    }
+
+    // Null (after reporting) if the file could not be read
+    private CompletableFuture<CatalogImportService.Report> runImport(File file, boolean dryRun) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return CatalogImportService.importCsv(file.toPath(), dryRun);
+            } catch (Exception e) {
+                e.printStackTrace();
+                Platform.runLater(() -> showInfoLabel(productInfoLabel, "Import failed: " + e.getMessage(), true));
+                return null;
+            }
+        });
+    }
+
     @FXML
     private void handleEditPrice() {
         Product selected = productTable.getSelectionModel().getSelectedItem();
@@ -726,21 +912,29 @@ public class OwnerController extends BaseController {
 
     @FXML
     private void handleDeleteProduct() {
-        Product selected = productTable.getSelectionModel().getSelectedItem();
-        if (selected == null) {
+        List<Product> selected = new ArrayList<>(productTable.getSelectionModel().getSelectedItems());
+        if (selected.isEmpty()) {
             showInfoLabel(productInfoLabel, "Select a product!", true);
             return;
         }
 
         Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
         confirm.setTitle("Delete Product");
-        confirm.setHeaderText("Delete " + selected.getName() + "?");
+        confirm.setHeaderText(selected.size() == 1
+                ? "Delete " + selected.get(0).getName() + "?"
+                : "Delete " + selected.size() + " products?");
         confirm.setContentText("This action cannot be undone!");
 
         Optional<ButtonType> result = confirm.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            if (ProductDAO.deleteProduct(selected.getProductId())) {
-                showInfoLabel(productInfoLabel, "Product deleted ✅", false);
+            List<Integer> ids = new ArrayList<>();
+            for (Product p : selected) {
+                ids.add(p.getProductId());
+            }
+            int deleted = ProductDAO.deleteProducts(ids);
+            if (deleted > 0) {
+                showInfoLabel(productInfoLabel,
+                        deleted == 1 ? "Product deleted ✅" : deleted + " products deleted ✅", false);
                 loadProducts();
             } else {
                 showInfoLabel(productInfoLabel, "Failed to delete!", true);
@@ -900,9 +1094,16 @@ public class OwnerController extends BaseController {
                     return false;
                 }
 
-                return UserDAO.employCarrier(username, password,
+                boolean employed = UserDAO.employCarrier(username, password,
                         address.isEmpty() ? null : address,
                         phone.isEmpty() ? null : phone);
+                // A failed insert may be a name taken since the check above
+                if (!employed && dao.UserDAO.usernameExists(username)) {
+                    showInfoLabel(carrierInfoLabel,
+                            "Username already exists! Choose a different username.",
+                            true);
+                }
+                return employed;
             }
             return false;
         });
@@ -1117,6 +1318,101 @@ public class OwnerController extends BaseController {
         }
     }
 
+    /**
+     * One personal coupon for every customer of a tier (or all customers),
+     * issued in the background with progress in the info label.
+     */
+    @FXML
+    private void handleIssueCampaign() {
+        Dialog<Coupon> dialog = new Dialog<>();
+        dialog.setTitle("Issue Campaign");
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+
+        TextField prefixField = new TextField();
+        prefixField.setPromptText("e.g. SPRING");
+
+        ComboBox<String> tierBox = new ComboBox<>();
+        tierBox.getItems().add("All customers");
+        for (CustomerLoyalty.Tier t : CustomerLoyalty.Tier.values()) {
+            tierBox.getItems().add(t.name());
+        }
+        tierBox.setValue("All customers");
+
+        TextField percentField = new TextField();
+        percentField.setPromptText("e.g. 10");
+
+        TextField amountField = new TextField();
+        amountField.setPromptText("e.g. 50");
+
+        TextField minField = new TextField("0");
+        Spinner<Integer> validDaysSpinner = new Spinner<>(1, 365, 30);
+
+        grid.addRow(0, new Label("Code prefix:"), prefixField);
+        grid.addRow(1, new Label("Tier:"), tierBox);
+        grid.addRow(2, new Label("Discount %:"), percentField);
+        grid.addRow(3, new Label("OR Discount TL:"), amountField);
+        grid.addRow(4, new Label("Min Order:"), minField);
+        grid.addRow(5, new Label("Valid Days:"), validDaysSpinner);
+
+        dialog.getDialogPane().setContent(grid);
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+
+        dialog.setResultConverter(btn -> {
+            if (btn == ButtonType.OK) {
+                try {
+                    double percent = percentField.getText().isEmpty() ? 0 : Double.parseDouble(percentField.getText());
+                    double amount = amountField.getText().isEmpty() ? 0 : Double.parseDouble(amountField.getText());
+                    if (percent <= 0 && amount <= 0)
+                        return null;
+
+                    // One use per customer; the code is personal
+                    Coupon template = new Coupon();
+                    template.setDiscountPercent(percent);
+                    template.setDiscountAmount(amount);
+                    template.setMinOrderAmount(Double.parseDouble(minField.getText()));
+                    template.setValidFrom(Timestamp.valueOf(LocalDateTime.now()));
+                    template.setValidUntil(Timestamp.valueOf(LocalDateTime.now().plusDays(validDaysSpinner.getValue())));
+                    template.setMaxUses(1);
+                    template.setActive(true);
+                    return template;
+                } catch (Exception e) {
+                    return null;
+                }
+            }
+            return null;
+        });
+
+        Optional<Coupon> result = dialog.showAndWait();
+        if (result.isEmpty())
+            return;
+
+        Coupon template = result.get();
+        String prefix = prefixField.getText().trim();
+        CustomerLoyalty.Tier tier = "All customers".equals(tierBox.getValue())
+                ? null
+                : CustomerLoyalty.Tier.valueOf(tierBox.getValue());
+
+        showInfoLabel(couponInfoLabel, "Issuing campaign...", false);
+        CompletableFuture.supplyAsync(() -> CouponCampaignService.issueCampaign(prefix, template, tier,
+                CouponCampaignService.DEFAULT_CHUNK_SIZE,
+                (issued, total) -> Platform.runLater(() -> showInfoLabel(couponInfoLabel,
+                        "Issuing campaign... " + issued + "/" + total, false))))
+                .whenComplete((issued, error) -> Platform.runLater(() -> {
+                    if (error != null) {
+                        error.printStackTrace();
+                        showInfoLabel(couponInfoLabel, "Campaign failed!", true);
+                    } else if (issued == 0) {
+                        showInfoLabel(couponInfoLabel, "No coupons issued.", true);
+                    } else {
+                        showInfoLabel(couponInfoLabel, "Campaign issued: " + issued + " coupons ✅", false);
+                        loadCoupons();
+                    }
+                }));
+    }
+
     @FXML
     private void handleDeactivateCoupon() {
         Coupon selected = couponTable.getSelectionModel().getSelectedItem();
@@ -1137,7 +1433,7 @@ public class OwnerController extends BaseController {
 
     @FXML
     private void handleRefresh() {
-        loadAll();
+        refreshDashboard();
         showInfoLabel(productInfoLabel, "Refreshed.", false);
     }
 
@@ -1227,13 +1523,19 @@ public class OwnerController extends BaseController {
     private void loadAlerts() {
         if (alertsTable == null)
             return;
+        renderAlerts(fetchAlerts());
+    }
 
-        dao.SystemMessageDAO.checkAndCreateLowStockAlerts();
+    private AlertsData fetchAlerts() {
+        return new AlertsData(SystemMessageDAO.getAllMessages(), SystemMessageDAO.getUnreadCount());
+    }
 
-        java.util.List<dao.SystemMessageDAO.SystemMessage> messages = dao.SystemMessageDAO.getAllMessages();
-        alertsTable.setItems(FXCollections.observableArrayList(messages));
+    private void renderAlerts(AlertsData data) {
+        if (alertsTable == null)
+            return;
+        alertsTable.setItems(FXCollections.observableArrayList(data.messages()));
 
-        int unread = dao.SystemMessageDAO.getUnreadCount();
+        int unread = data.unread();
         if (alertInfoLabel != null) {
             alertInfoLabel.setText(unread > 0 ? unread + " unread alert(s)" : "No new alerts");
         }
@@ -1,7 +1,9 @@
 package controller;
 
+import dao.CustomerLoyaltyDAO;
 import dao.UserDAO;
 import model.Person;
+import service.LoyaltyLeaderboard;
 import util.ValidationUtil;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
@@ -24,6 +26,8 @@ public class ProfileController extends BaseController {
     private TextField phoneField;
     @FXML
     private Label infoLabel;
+    @FXML
+    private Label loyaltyRankLabel;
 
     // ========== POLYMORPHISM: Override abstract methods from BaseController
     // ==========
@@ -59,6 +63,12 @@ public class ProfileController extends BaseController {
             addressField.setText(user.getAddress() != null ? user.getAddress() : "");
             phoneField.setText(user.getPhone() != null ? user.getPhone() : "");
         }
+
+        if (loyaltyRankLabel != null) {
+            int rank = LoyaltyLeaderboard.getRank(currentUsername);
+            int points = CustomerLoyaltyDAO.getBalance(currentUsername);
+            loyaltyRankLabel.setText((rank > 0 ? "#" + rank : "-") + "  (" + points + " points)");
+        }
     }
 
     /**
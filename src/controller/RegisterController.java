@@ -2,7 +2,6 @@ package controller;
 
 import dao.UserDAO;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
@@ -141,7 +140,10 @@ public class RegisterController extends BaseController {
 
             boolean ok = UserDAO.registerCustomer(username, pass1, addressDb, phoneDb);
             if (!ok) {
-                setError("Registration failed (DB).");
+                // A failed insert may be a name taken since the check above
+                setError(UserDAO.usernameExists(username)
+                        ? "Username already taken."
+                        : "Registration failed (DB).");
                 return;
             }
 
@@ -175,8 +177,7 @@ public class RegisterController extends BaseController {
             Stage stage = (Stage) usernameField.getScene().getWindow();
             boolean wasMaximized = stage.isMaximized();
 
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/login.fxml"));
-            Scene scene = new Scene(loader.load(), 960, 540);
+            Scene scene = new Scene(ViewRegistry.load("/view/login.fxml").root(), 960, 540);
             applyStylesheet(scene);
 
             stage.setTitle("GreenGrocer Login");
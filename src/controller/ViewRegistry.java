@@ -0,0 +1,143 @@
+package controller;
+
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Loads FXML views, faster than a plain FXMLLoader on every navigation.
+ *
+ * Templates (the FXML bytes) are read once and kept, and their controller
+ * classes loaded, on a background thread. Views whose controller does
+ * nothing but wire up controls in initialize() (cart, orders, messages,
+ * profile, register) are also built ahead of time: one ready instance per
+ * view waits on the side, built on the FX thread when it is idle, so
+ * opening such a window only sets its data. Each instance is handed out
+ * once and the next one is prepared after it is taken; controllers are
+ * never shared between two windows.
+ *
+ * Views that load data in initialize() (customer, owner, carrier) only get
+ * the template cache.
+ */
+public class ViewRegistry {
+
+    /**
+     * A loaded view: its root node and its controller.
+     */
+    public record View<C>(Parent root, C controller) {
+    }
+
+    // Views that are safe to build before they are needed
+    private static final Set<String> PREPARABLE = Set.of(
+            "/view/cart.fxml", "/view/myorders.fxml", "/view/messages.fxml",
+            "/view/profile.fxml", "/view/register.fxml");
+
+    private static final Pattern CONTROLLER = Pattern.compile("fx:controller=\"([\\w.$]+)\"");
+
+    private static final Map<String, byte[]> TEMPLATES = new ConcurrentHashMap<>();
+    private static final Map<String, View<?>> READY = new ConcurrentHashMap<>();
+    private static final Set<String> PREPARING = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Load a view, using a prepared instance if one is waiting.
+     * Call on the FX thread.
+     */
+    @SuppressWarnings("unchecked")
+    public static <C> View<C> load(String fxml) throws IOException {
+        View<?> ready = READY.remove(fxml);
+        if (ready != null) {
+            prepareLater(fxml);
+            return (View<C>) ready;
+        }
+        View<C> view = build(fxml);
+        prepareLater(fxml);
+        return view;
+    }
+
+    /**
+     * Read and keep the templates of {@code fxmls} in the background, then
+     * build a spare instance of each preparable one.
+     */
+    public static void preload(String... fxmls) {
+        Thread t = new Thread(() -> {
+            for (String fxml : fxmls) {
+                try {
+                    template(fxml);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            for (String fxml : fxmls) {
+                prepareLater(fxml);
+            }
+        }, "view-preload");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private static <C> View<C> build(String fxml) throws IOException {
+        URL location = ViewRegistry.class.getResource(fxml);
+        if (location == null)
+            throw new IOException("View not found: " + fxml);
+
+        // Location still set, so relative references (images, includes) resolve
+        FXMLLoader loader = new FXMLLoader(location);
+        try (InputStream in = new ByteArrayInputStream(template(fxml))) {
+            Parent root = loader.load(in);
+            return new View<>(root, loader.getController());
+        }
+    }
+
+    private static byte[] template(String fxml) throws IOException {
+        byte[] bytes = TEMPLATES.get(fxml);
+        if (bytes != null)
+            return bytes;
+
+        try (InputStream in = ViewRegistry.class.getResourceAsStream(fxml)) {
+            if (in == null)
+                throw new IOException("View not found: " + fxml);
+            bytes = in.readAllBytes();
+        }
+        warmController(bytes);
+        TEMPLATES.put(fxml, bytes);
+        return bytes;
+    }
+
+    // Load (not initialize) the controller class so the first build skips it
+    private static void warmController(byte[] template) {
+        Matcher m = CONTROLLER.matcher(new String(template, StandardCharsets.UTF_8));
+        if (!m.find())
+            return;
+        try {
+            Class.forName(m.group(1), false, ViewRegistry.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            // FXMLLoader will report it when the view is built
+        }
+    }
+
+    private static void prepareLater(String fxml) {
+        if (!PREPARABLE.contains(fxml) || READY.containsKey(fxml) || !PREPARING.add(fxml))
+            return;
+
+        Platform.runLater(() -> {
+            try {
+                READY.putIfAbsent(fxml, build(fxml));
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                PREPARING.remove(fxml);
+            }
+        });
+    }
+}
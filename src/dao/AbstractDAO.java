@@ -6,8 +6,16 @@ import util.DBUtil;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Abstract DAO with common database operations.
@@ -21,6 +29,29 @@ import java.util.List;
  */
 public abstract class AbstractDAO<T extends Entity> implements BaseDAO<T> {
 
+    /**
+     * Named column sets for generic reads.
+     * FULL: every column. SUMMARY: everything except heavy columns (BLOBs,
+     * large CLOBs); subclasses hand the entity a LazyColumn for those.
+     */
+    public enum Projection {
+        SUMMARY, FULL
+    }
+
+    /**
+     * Rows sent per JDBC batch by saveAll/updateAll/deleteAll, unless the
+     * call passes its own chunk size. At least 1, whatever the property says.
+     */
+    public static final int BATCH_SIZE = Math.max(1, Integer.getInteger("greengrocer.db.batchSize", 500));
+
+    /**
+     * Receives the rows of a streaming scan one at a time.
+     */
+    @FunctionalInterface
+    public interface RowCallback<T> {
+        void accept(T row) throws Exception;
+    }
+
     // ENCAPSULATION: Protected helper method
     protected Connection getConnection() throws Exception {
         return DBUtil.getConnection();
@@ -45,6 +76,67 @@ public abstract class AbstractDAO<T extends Entity> implements BaseDAO<T> {
      */
     protected abstract String getIdColumnName();
 
+    /**
+     * INSERT for one entity, used by saveAll. Default: null (no generic
+     * insert); DAOs that support batch saves override this and bindInsert.
+     */
+    protected String getInsertSql() {
+        return null;
+    }
+
+    protected void bindInsert(PreparedStatement ps, T entity) throws Exception {
+        throw new UnsupportedOperationException("bindInsert() not implemented for " + getClass().getSimpleName());
+    }
+
+    /**
+     * UPDATE for one entity, used by updateAll. Default: null (no generic
+     * update); DAOs that support batch updates override this and bindUpdate.
+     */
+    protected String getUpdateSql() {
+        return null;
+    }
+
+    protected void bindUpdate(PreparedStatement ps, T entity) throws Exception {
+        throw new UnsupportedOperationException("bindUpdate() not implemented for " + getClass().getSimpleName());
+    }
+
+    // ========== PROJECTIONS ==========
+
+    /**
+     * Column list selected for a projection. Default: all columns for both;
+     * DAOs with heavy columns override.
+     */
+    protected String getColumns(Projection projection) {
+        return "*";
+    }
+
+    /**
+     * Map a row selected with {@link #getColumns(Projection)}. Default: the
+     * full mapper; DAOs that narrow SUMMARY override this too.
+     */
+    protected T mapResultSetToEntity(ResultSet rs, Projection projection) throws Exception {
+        return mapResultSetToEntity(rs);
+    }
+
+    /**
+     * Statement whose result set is streamed row by row instead of being
+     * buffered client-side by the driver. Only one streaming result can be
+     * open per connection, so do not run other statements on {@code con}
+     * until it is closed.
+     */
+    protected static PreparedStatement prepareStreaming(Connection con, String sql) throws SQLException {
+        PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ps.setFetchSize(Integer.MIN_VALUE);
+        return ps;
+    }
+
+    /**
+     * Handle that reads {@code column} of row {@code id} on first use.
+     */
+    protected <V> LazyColumn<V> lazyColumn(String column, int id, LazyColumn.Reader<V> reader) {
+        return new LazyColumn<>(getTableName(), getIdColumnName(), column, id, reader);
+    }
+
     // ========== CONCRETE IMPLEMENTATIONS (INHERITANCE) ==========
 
     /**
@@ -54,7 +146,15 @@ public abstract class AbstractDAO<T extends Entity> implements BaseDAO<T> {
      */
     @Override
     public T findById(int id) {
-        String sql = "SELECT * FROM " + getTableName() + " WHERE " + getIdColumnName() + "=?";
+        return findById(id, Projection.FULL);
+    }
+
+    /**
+     * Find entity by ID, selecting only the projection's columns.
+     */
+    public T findById(int id, Projection projection) {
+        String sql = "SELECT " + getColumns(projection) + " FROM " + getTableName()
+                + " WHERE " + getIdColumnName() + "=?";
 
         try (Connection con = getConnection();
                 PreparedStatement ps = con.prepareStatement(sql)) {
@@ -63,7 +163,7 @@ public abstract class AbstractDAO<T extends Entity> implements BaseDAO<T> {
 
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    return mapResultSetToEntity(rs); // POLYMORPHISM: Calls subclass implementation
+                    return mapResultSetToEntity(rs, projection); // POLYMORPHISM: Calls subclass implementation
                 }
             }
         } catch (Exception e) {
@@ -78,15 +178,22 @@ public abstract class AbstractDAO<T extends Entity> implements BaseDAO<T> {
      */
     @Override
     public List<T> findAll() {
+        return findAll(Projection.FULL);
+    }
+
+    /**
+     * Find all entities, selecting only the projection's columns.
+     */
+    public List<T> findAll(Projection projection) {
         List<T> list = new ArrayList<>();
-        String sql = "SELECT * FROM " + getTableName();
+        String sql = "SELECT " + getColumns(projection) + " FROM " + getTableName();
 
         try (Connection con = getConnection();
                 PreparedStatement ps = con.prepareStatement(sql);
                 ResultSet rs = ps.executeQuery()) {
 
             while (rs.next()) {
-                list.add(mapResultSetToEntity(rs)); // POLYMORPHISM
+                list.add(mapResultSetToEntity(rs, projection)); // POLYMORPHISM
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -94,6 +201,91 @@ public abstract class AbstractDAO<T extends Entity> implements BaseDAO<T> {
         return list;
     }
 
+    // ========== STREAMING SCANS ==========
+
+    /**
+     * Scan the whole table, handing each row to {@code callback} as it is
+     * read. Unlike findAll nothing is buffered, by us or by the driver, so
+     * memory stays flat however large the table is; use this for exports,
+     * backfills and reports. The connection stays open until the scan ends,
+     * so the callback should not be slow.
+     *
+     * @return rows processed, or -1 if the scan or the callback failed
+     */
+    public int forEach(Projection projection, RowCallback<T> callback) {
+        String sql = "SELECT " + getColumns(projection) + " FROM " + getTableName();
+        int count = 0;
+
+        try (Connection con = getConnection();
+                PreparedStatement ps = prepareStreaming(con, sql);
+                ResultSet rs = ps.executeQuery()) {
+
+            while (rs.next()) {
+                callback.accept(mapResultSetToEntity(rs, projection));
+                count++;
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            return -1;
+        }
+        return count;
+    }
+
+    /**
+     * The whole table as a lazily read Stream. The stream holds a connection
+     * until closed, so always use it in try-with-resources. Failures surface
+     * as DataAccessException.
+     */
+    public Stream<T> stream(Projection projection) {
+        String sql = "SELECT " + getColumns(projection) + " FROM " + getTableName();
+        String operation = "stream " + getTableName();
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+
+        try {
+            con = getConnection();
+            ps = prepareStreaming(con, sql);
+            rs = ps.executeQuery();
+        } catch (Exception e) {
+            closeQuietly(rs, ps, con);
+            throw new DataAccessException(operation, e);
+        }
+
+        ResultSet cursor = rs;
+        Spliterator<T> rows = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!cursor.next())
+                        return false;
+                    action.accept(mapResultSetToEntity(cursor, projection));
+                    return true;
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new DataAccessException(operation, e);
+                }
+            }
+        };
+
+        PreparedStatement statement = ps;
+        Connection connection = con;
+        return StreamSupport.stream(rows, false).onClose(() -> closeQuietly(cursor, statement, connection));
+    }
+
+    private static void closeQuietly(AutoCloseable... resources) {
+        for (AutoCloseable resource : resources) {
+            if (resource == null)
+                continue;
+            try {
+                resource.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
     /**
      * Default implementation - subclasses should override if needed.
      */
@@ -127,4 +319,176 @@ public abstract class AbstractDAO<T extends Entity> implements BaseDAO<T> {
             return false;
         }
     }
+
+    // ========== BATCH OPERATIONS ==========
+    // Each call is one transaction: either every row is written or none is.
+
+    @Override
+    public List<Integer> saveAll(List<T> entities) {
+        return saveAll(entities, BATCH_SIZE);
+    }
+
+    /**
+     * Insert entities with getInsertSql(), {@code chunkSize} rows per round
+     * trip. Sets each entity's id from the generated keys.
+     */
+    public List<Integer> saveAll(List<T> entities, int chunkSize) {
+        checkChunkSize(chunkSize);
+        String sql = getInsertSql();
+        if (sql == null)
+            throw new UnsupportedOperationException("saveAll() not implemented for " + getClass().getSimpleName());
+        if (entities.isEmpty())
+            return Collections.emptyList();
+
+        List<Integer> keys = new ArrayList<>(entities.size());
+        try (Connection con = getConnection()) {
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                int pending = 0;
+                for (T entity : entities) {
+                    bindInsert(ps, entity);
+                    ps.addBatch();
+                    if (++pending == chunkSize) {
+                        executeInsertBatch(ps, keys);
+                        pending = 0;
+                    }
+                }
+                if (pending > 0)
+                    executeInsertBatch(ps, keys);
+                con.commit();
+            } catch (Exception e) {
+                con.rollback();
+                throw e;
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Collections.emptyList();
+        }
+
+        for (int i = 0; i < keys.size() && i < entities.size(); i++) {
+            entities.get(i).setId(keys.get(i));
+        }
+        return keys;
+    }
+
+    private static void executeInsertBatch(PreparedStatement ps, List<Integer> keys) throws SQLException {
+        ps.executeBatch();
+        try (ResultSet rs = ps.getGeneratedKeys()) {
+            while (rs.next()) {
+                keys.add(rs.getInt(1));
+            }
+        }
+    }
+
+    @Override
+    public int updateAll(List<T> entities) {
+        return updateAll(entities, BATCH_SIZE);
+    }
+
+    /**
+     * Update entities with getUpdateSql(), {@code chunkSize} rows per round
+     * trip.
+     */
+    public int updateAll(List<T> entities, int chunkSize) {
+        checkChunkSize(chunkSize);
+        String sql = getUpdateSql();
+        if (sql == null)
+            throw new UnsupportedOperationException("updateAll() not implemented for " + getClass().getSimpleName());
+        if (entities.isEmpty())
+            return 0;
+
+        try (Connection con = getConnection()) {
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                int updated = 0;
+                int pending = 0;
+                for (T entity : entities) {
+                    bindUpdate(ps, entity);
+                    ps.addBatch();
+                    if (++pending == chunkSize) {
+                        updated += countRows(ps.executeBatch());
+                        pending = 0;
+                    }
+                }
+                if (pending > 0)
+                    updated += countRows(ps.executeBatch());
+                con.commit();
+                return updated;
+            } catch (Exception e) {
+                con.rollback();
+                throw e;
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    @Override
+    public int deleteAll(List<Integer> ids) {
+        return deleteAll(ids, BATCH_SIZE);
+    }
+
+    /**
+     * Delete rows by id, one {@code WHERE id IN (...)} per chunk.
+     */
+    public int deleteAll(List<Integer> ids, int chunkSize) {
+        checkChunkSize(chunkSize);
+        if (ids.isEmpty())
+            return 0;
+
+        try (Connection con = getConnection()) {
+            con.setAutoCommit(false);
+            try {
+                int deleted = deleteIn(con, getTableName(), getIdColumnName(), ids, chunkSize);
+                con.commit();
+                return deleted;
+            } catch (Exception e) {
+                con.rollback();
+                throw e;
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code chunkSize} is below 1
+     */
+    protected static void checkChunkSize(int chunkSize) {
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("chunkSize must be at least 1: " + chunkSize);
+    }
+
+    /**
+     * {@code DELETE FROM table WHERE column IN (...)} on {@code con}, in
+     * chunks of {@code chunkSize} ids. For DAOs that cascade deletes by hand.
+     */
+    protected static int deleteIn(Connection con, String table, String column, List<Integer> ids, int chunkSize)
+            throws SQLException {
+        checkChunkSize(chunkSize);
+        int deleted = 0;
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            String sql = "DELETE FROM " + table + " WHERE " + column + " IN ("
+                    + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    ps.setInt(i + 1, chunk.get(i));
+                }
+                deleted += ps.executeUpdate();
+            }
+        }
+        return deleted;
+    }
+
+    // Rewritten batches may report SUCCESS_NO_INFO instead of a row count
+    private static int countRows(int[] results) {
+        int rows = 0;
+        for (int r : results) {
+            rows += r == Statement.SUCCESS_NO_INFO ? 1 : Math.max(r, 0);
+        }
+        return rows;
+    }
 }
@@ -0,0 +1,66 @@
+package dao;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared executor for the async DAO API (AsyncProductDAO, AsyncOrderDAO).
+ *
+ * Queries run on a fixed set of daemon threads, so no more than THREADS
+ * connections are open for async work at once however many loads are
+ * submitted; the rest queue. Unlike the blocking DAO methods, failures are
+ * not swallowed: the future completes exceptionally with a
+ * DataAccessException naming the operation.
+ */
+public class AsyncDAO {
+
+    public static final int THREADS = Integer.getInteger("greengrocer.db.asyncThreads", 4);
+
+    private static final AtomicInteger THREAD_NO = new AtomicInteger();
+
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(THREADS, THREADS,
+            30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            r -> {
+                Thread t = new Thread(r, "dao-async-" + THREAD_NO.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+
+    static {
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * A query that may throw; see the package-private query* methods of the
+     * DAOs.
+     */
+    @FunctionalInterface
+    public interface Query<T> {
+        T run() throws Exception;
+    }
+
+    /**
+     * Run a query on the DAO executor.
+     */
+    public static <T> CompletableFuture<T> supply(String operation, Query<T> query) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return query.run();
+            } catch (Exception e) {
+                throw new DataAccessException(operation, e);
+            }
+        }, EXECUTOR);
+    }
+
+    /**
+     * The DataAccessException behind a failed future's exception, or null.
+     */
+    public static DataAccessException unwrap(Throwable error) {
+        Throwable t = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return t instanceof DataAccessException ? (DataAccessException) t : null;
+    }
+}
@@ -0,0 +1,49 @@
+package dao;
+
+import model.OrderDetail;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterparts of OrderDAO's reads. Futures fail with
+ * DataAccessException instead of yielding an empty result.
+ */
+public class AsyncOrderDAO {
+
+    public static CompletableFuture<List<OrderDetail>> getAvailableOrderDetails() {
+        return AsyncDAO.supply("getAvailableOrderDetails", OrderDAO::queryAvailableOrderDetails);
+    }
+
+    public static CompletableFuture<List<OrderDetail>> getCurrentOrderDetails(String carrierUsername) {
+        return AsyncDAO.supply("getCurrentOrderDetails", () -> OrderDAO.queryCurrentOrderDetails(carrierUsername));
+    }
+
+    public static CompletableFuture<List<OrderDetail>> getOrderDetailsByUser(String username) {
+        return AsyncDAO.supply("getOrderDetailsByUser", () -> OrderDAO.queryOrderDetailsByUser(username));
+    }
+
+    public static CompletableFuture<List<OrderDetail>> getAllOrderDetails() {
+        return AsyncDAO.supply("getAllOrderDetails", OrderDAO::queryAllOrderDetails);
+    }
+
+    /**
+     * Completes with null when the order does not exist.
+     */
+    public static CompletableFuture<OrderDetail> getOrderDetail(int orderId) {
+        return AsyncDAO.supply("getOrderDetail", () -> OrderDAO.queryOrderDetail(orderId));
+    }
+
+    public static CompletableFuture<Map<String, Integer>> getDailyOrderCounts(int days) {
+        return AsyncDAO.supply("getDailyOrderCounts", () -> OrderDAO.queryDailyOrderCounts(days));
+    }
+
+    public static CompletableFuture<Map<String, Double>> getDailyRevenue(int days) {
+        return AsyncDAO.supply("getDailyRevenue", () -> OrderDAO.queryDailyRevenue(days));
+    }
+
+    public static CompletableFuture<Map<String, Integer>> getOrderStatusCounts() {
+        return AsyncDAO.supply("getOrderStatusCounts", OrderDAO::queryOrderStatusCounts);
+    }
+}
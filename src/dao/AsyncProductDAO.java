@@ -0,0 +1,37 @@
+package dao;
+
+import model.Product;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterparts of ProductDAO's reads. Futures fail with
+ * DataAccessException instead of yielding an empty list.
+ */
+public class AsyncProductDAO {
+
+    public static CompletableFuture<List<Product>> getAllProducts() {
+        return AsyncDAO.supply("getAllProducts", ProductDAO::queryAllProducts);
+    }
+
+    public static CompletableFuture<List<Product>> getProductsByType(String type) {
+        return AsyncDAO.supply("getProductsByType", () -> ProductDAO.queryProductsByType(type));
+    }
+
+    public static CompletableFuture<List<Product>> getAvailableProducts() {
+        return AsyncDAO.supply("getAvailableProducts", ProductDAO::queryAvailableProducts);
+    }
+
+    /**
+     * Card images by product id; see ProductDAO.queryCardImages.
+     */
+    public static CompletableFuture<Map<Integer, byte[]>> getCardImages(List<Product> products) {
+        return AsyncDAO.supply("getCardImages", () -> ProductDAO.queryCardImages(products));
+    }
+
+    public static CompletableFuture<List<Product>> getLowStockProducts() {
+        return AsyncDAO.supply("getLowStockProducts", ProductDAO::queryLowStockProducts);
+    }
+}
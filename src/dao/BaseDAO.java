@@ -50,4 +50,28 @@ public interface BaseDAO<T> {
      * @return true if successful
      */
     boolean delete(int id);
+
+    /**
+     * Save new entities in batches
+     * 
+     * @param entities Entities to save; their ids are set on success
+     * @return Generated ids in input order, or an empty list if nothing was saved
+     */
+    List<Integer> saveAll(List<T> entities);
+
+    /**
+     * Update existing entities in batches
+     * 
+     * @param entities Entities to update
+     * @return Number of rows updated, or -1 if nothing was updated
+     */
+    int updateAll(List<T> entities);
+
+    /**
+     * Delete entities by ID in batches
+     * 
+     * @param ids Entity IDs
+     * @return Number of rows deleted, or -1 if nothing was deleted
+     */
+    int deleteAll(List<Integer> ids);
 }
@@ -6,6 +6,7 @@ import util.DBUtil;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * DAO for Coupon operations.
@@ -20,6 +21,33 @@ public class CouponDAO extends AbstractDAO<Coupon> {
         return INSTANCE;
     }
 
+    // ========== CHANGE EVENTS ==========
+
+    /**
+     * Listener notified after coupons are created, changed or deleted.
+     * The code is null when the change was made by coupon ID.
+     */
+    @FunctionalInterface
+    public interface CouponChangeListener {
+        void onCouponChanged(String code);
+    }
+
+    private static final List<CouponChangeListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    public static void addCouponChangeListener(CouponChangeListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    private static void fireCouponChanged(String code) {
+        for (CouponChangeListener listener : LISTENERS) {
+            try {
+                listener.onCouponChanged(code);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
     @Override
     protected String getTableName() {
         return "Coupon";
@@ -70,13 +98,72 @@ public class CouponDAO extends AbstractDAO<Coupon> {
             ps.setTimestamp(6, validUntil);
             ps.setInt(7, maxUses);
 
-            return ps.executeUpdate() == 1;
+            boolean created = ps.executeUpdate() == 1;
+            if (created)
+                fireCouponChanged(code.toUpperCase());
+            return created;
         } catch (Exception e) {
             e.printStackTrace();
             return false;
         }
     }
 
+    /**
+     * Insert personalized coupons in one JDBC batch and transaction.
+     * All coupons share the discount settings of the template; codes[i] is
+     * assigned to userIds[i]. With rewriteBatchedStatements the driver sends
+     * the batch as multi-row INSERTs.
+     *
+     * @return number of coupons inserted (0 if the batch was rolled back)
+     */
+    public static int createAssignedCoupons(Coupon template, String[] codes, int[] userIds) {
+        String sql = """
+                INSERT INTO Coupon(code, discount_percent, discount_amount, min_order_amount,
+                                   valid_from, valid_until, max_uses, assigned_user_id)
+                VALUES(?, ?, ?, ?, ?, ?, ?, ?)
+                """;
+
+        Connection con = null;
+        try {
+            con = DBUtil.getConnection();
+            con.setAutoCommit(false);
+
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                for (int i = 0; i < codes.length; i++) {
+                    ps.setString(1, codes[i].toUpperCase());
+                    ps.setDouble(2, template.getDiscountPercent());
+                    ps.setDouble(3, template.getDiscountAmount());
+                    ps.setDouble(4, template.getMinOrderAmount());
+                    ps.setTimestamp(5, template.getValidFrom());
+                    ps.setTimestamp(6, template.getValidUntil());
+                    ps.setInt(7, template.getMaxUses());
+                    ps.setInt(8, userIds[i]);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+
+            con.commit();
+            fireCouponChanged(null);
+            return codes.length;
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            try {
+                if (con != null)
+                    con.rollback();
+            } catch (Exception ignored) {
+            }
+            return 0;
+        } finally {
+            try {
+                if (con != null)
+                    con.close();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
     /**
      * Get coupon by code.
      */
@@ -101,12 +188,38 @@ public class CouponDAO extends AbstractDAO<Coupon> {
 
     /**
      * Use a coupon (increment used_count).
+     * Conditional UPDATE: succeeds only while the coupon is active, inside its
+     * validity window and below max_uses, so concurrent checkouts cannot
+     * over-redeem it.
      */
     public static boolean useCoupon(String code) {
         String sql = """
                 UPDATE Coupon
                 SET used_count = used_count + 1
                 WHERE code = ? AND is_active = TRUE AND used_count < max_uses
+                  AND (valid_from IS NULL OR valid_from <= CURRENT_TIMESTAMP)
+                  AND (valid_until IS NULL OR valid_until > CURRENT_TIMESTAMP)
+                """;
+
+        try (Connection con = DBUtil.getConnection();
+                PreparedStatement ps = con.prepareStatement(sql)) {
+
+            ps.setString(1, code.toUpperCase());
+            return ps.executeUpdate() == 1;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Give back a use taken by useCoupon (e.g. checkout failed after reserving).
+     */
+    public static boolean releaseCoupon(String code) {
+        String sql = """
+                UPDATE Coupon
+                SET used_count = used_count - 1
+                WHERE code = ? AND used_count > 0
                 """;
 
         try (Connection con = DBUtil.getConnection();
@@ -130,7 +243,10 @@ public class CouponDAO extends AbstractDAO<Coupon> {
                 PreparedStatement ps = con.prepareStatement(sql)) {
 
             ps.setInt(1, couponId);
-            return ps.executeUpdate() == 1;
+            boolean updated = ps.executeUpdate() == 1;
+            if (updated)
+                fireCouponChanged(null);
+            return updated;
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -208,7 +324,10 @@ public class CouponDAO extends AbstractDAO<Coupon> {
 
             ps.setInt(1, userId);
             ps.setString(2, code.toUpperCase());
-            return ps.executeUpdate() == 1;
+            boolean assigned = ps.executeUpdate() == 1;
+            if (assigned)
+                fireCouponChanged(code.toUpperCase());
+            return assigned;
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -260,7 +379,10 @@ public class CouponDAO extends AbstractDAO<Coupon> {
                 PreparedStatement ps = con.prepareStatement(sql)) {
 
             ps.setInt(1, couponId);
-            return ps.executeUpdate() == 1;
+            boolean updated = ps.executeUpdate() == 1;
+            if (updated)
+                fireCouponChanged(null);
+            return updated;
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -281,7 +403,10 @@ public class CouponDAO extends AbstractDAO<Coupon> {
                 PreparedStatement ps = con.prepareStatement(sql)) {
 
             ps.setInt(1, couponId);
-            return ps.executeUpdate() == 1;
+            boolean updated = ps.executeUpdate() == 1;
+            if (updated)
+                fireCouponChanged(null);
+            return updated;
         } catch (Exception e) {
             e.printStackTrace();
             return false;
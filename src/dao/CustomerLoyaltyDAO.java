@@ -5,11 +5,18 @@ import util.DBUtil;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * DAO for Customer Loyalty operations.
  * 
+ * Point changes are appended to the LoyaltyLedger table; CustomerLoyalty holds
+ * the balances folded from applied ledger entries (see applyLedgerBatch).
+ * 
  * INHERITANCE: Extends AbstractDAO<CustomerLoyalty>
  */
 public class CustomerLoyaltyDAO extends AbstractDAO<CustomerLoyalty> {
@@ -20,6 +27,31 @@ public class CustomerLoyaltyDAO extends AbstractDAO<CustomerLoyalty> {
         return INSTANCE;
     }
 
+    /**
+     * Listener notified after ledger entries were folded into balances,
+     * with the updated loyalty rows.
+     */
+    @FunctionalInterface
+    public interface LoyaltyChangeListener {
+        void onLoyaltyChanged(List<CustomerLoyalty> updated);
+    }
+
+    private static final List<LoyaltyChangeListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    public static void addLoyaltyChangeListener(LoyaltyChangeListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    private static void fireLoyaltyChanged(List<CustomerLoyalty> updated) {
+        for (LoyaltyChangeListener listener : LISTENERS) {
+            try {
+                listener.onLoyaltyChanged(updated);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
     @Override
     protected String getTableName() {
         return "CustomerLoyalty";
@@ -90,44 +122,183 @@ public class CustomerLoyaltyDAO extends AbstractDAO<CustomerLoyalty> {
 
     /**
      * Add points from an order.
+     * Only appends a ledger entry; the balance is updated by the aggregator.
      */
     public static boolean addPointsFromOrder(String username, double orderTotal) {
-        int points = CustomerLoyalty.calculatePointsFromOrder(orderTotal);
-
-        // Get or create record
-        CustomerLoyalty cl = getOrCreate(username);
-        if (cl == null)
+        try (Connection con = DBUtil.getConnection()) {
+            return addPointsFromOrder(con, username, orderTotal, null);
+        } catch (Exception e) {
+            e.printStackTrace();
             return false;
+        }
+    }
+
+    /**
+     * Add points from an order inside the caller's transaction (one INSERT).
+     */
+    public static boolean addPointsFromOrder(Connection con, String username, double orderTotal,
+            Integer orderId) throws SQLException {
+        int points = CustomerLoyalty.calculatePointsFromOrder(orderTotal);
 
-        // Update points and total spent
         String sql = """
-                UPDATE CustomerLoyalty
-                SET points = points + ?,
-                    total_spent = total_spent + ?,
+                INSERT INTO LoyaltyLedger(username, points_delta, amount, reason, order_id)
+                VALUES(?, ?, ?, 'ORDER', ?)
+                """;
+
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setString(1, username);
+            ps.setInt(2, points);
+            ps.setDouble(3, orderTotal);
+            if (orderId == null) {
+                ps.setNull(4, Types.INTEGER);
+            } else {
+                ps.setInt(4, orderId);
+            }
+            return ps.executeUpdate() == 1;
+        }
+    }
+
+    /**
+     * Fold up to {@code limit} pending ledger entries into CustomerLoyalty
+     * balances and tiers, in one transaction.
+     *
+     * @return number of ledger entries applied
+     */
+    public static int applyLedgerBatch(int limit) {
+        String selectSql = """
+                SELECT entry_id, username, points_delta, amount
+                FROM LoyaltyLedger
+                WHERE applied = FALSE
+                ORDER BY entry_id
+                LIMIT ?
+                FOR UPDATE
+                """;
+
+        // Assignments run left to right, so tier sees the updated points
+        String upsertSql = """
+                INSERT INTO CustomerLoyalty(username, points, total_spent, tier)
+                VALUES(?, ?, ?, ?)
+                ON DUPLICATE KEY UPDATE
+                    points = points + VALUES(points),
+                    total_spent = total_spent + VALUES(total_spent),
                     tier = CASE
-                        WHEN points + ? >= 2500 THEN 'PLATINUM'
-                        WHEN points + ? >= 1000 THEN 'GOLD'
-                        WHEN points + ? >= 500 THEN 'SILVER'
+                        WHEN points >= 2500 THEN 'PLATINUM'
+                        WHEN points >= 1000 THEN 'GOLD'
+                        WHEN points >= 500 THEN 'SILVER'
                         ELSE 'BRONZE'
                     END
-                WHERE username = ?
+                """;
+
+        String markSql = "UPDATE LoyaltyLedger SET applied = TRUE WHERE entry_id = ?";
+
+        Connection con = null;
+        try {
+            con = DBUtil.getConnection();
+            con.setAutoCommit(false);
+
+            List<Integer> entryIds = new ArrayList<>();
+            Map<String, int[]> pointsByUser = new LinkedHashMap<>();
+            Map<String, double[]> spentByUser = new LinkedHashMap<>();
+
+            try (PreparedStatement ps = con.prepareStatement(selectSql)) {
+                ps.setInt(1, limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String username = rs.getString("username");
+                        entryIds.add(rs.getInt("entry_id"));
+                        pointsByUser.computeIfAbsent(username, u -> new int[1])[0] += rs.getInt("points_delta");
+                        spentByUser.computeIfAbsent(username, u -> new double[1])[0] += rs.getDouble("amount");
+                    }
+                }
+            }
+
+            if (entryIds.isEmpty()) {
+                con.rollback();
+                return 0;
+            }
+
+            try (PreparedStatement ps = con.prepareStatement(upsertSql)) {
+                for (Map.Entry<String, int[]> e : pointsByUser.entrySet()) {
+                    int delta = e.getValue()[0];
+                    ps.setString(1, e.getKey());
+                    ps.setInt(2, delta);
+                    ps.setDouble(3, spentByUser.get(e.getKey())[0]);
+                    ps.setString(4, CustomerLoyalty.Tier.fromPoints(delta).name());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+
+            try (PreparedStatement ps = con.prepareStatement(markSql)) {
+                for (int id : entryIds) {
+                    ps.setInt(1, id);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+
+            // Read back the new balances for listeners (same transaction)
+            List<CustomerLoyalty> updated = new ArrayList<>();
+            String placeholders = String.join(",", Collections.nCopies(pointsByUser.size(), "?"));
+            try (PreparedStatement ps = con.prepareStatement(
+                    "SELECT * FROM CustomerLoyalty WHERE username IN (" + placeholders + ")")) {
+                int i = 1;
+                for (String username : pointsByUser.keySet()) {
+                    ps.setString(i++, username);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        updated.add(INSTANCE.mapResultSetToEntity(rs));
+                    }
+                }
+            }
+
+            con.commit();
+            fireLoyaltyChanged(updated);
+            return entryIds.size();
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            try {
+                if (con != null)
+                    con.rollback();
+            } catch (Exception ignored) {
+            }
+            return 0;
+        } finally {
+            try {
+                if (con != null)
+                    con.close();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    /**
+     * Current point balance: folded balance plus ledger entries not yet applied.
+     */
+    public static int getBalance(String username) {
+        String sql = """
+                SELECT COALESCE((SELECT points FROM CustomerLoyalty WHERE username = ?), 0)
+                     + COALESCE((SELECT SUM(points_delta) FROM LoyaltyLedger
+                                 WHERE username = ? AND applied = FALSE), 0)
                 """;
 
         try (Connection con = DBUtil.getConnection();
                 PreparedStatement ps = con.prepareStatement(sql)) {
 
-            ps.setInt(1, points);
-            ps.setDouble(2, orderTotal);
-            ps.setInt(3, points);
-            ps.setInt(4, points);
-            ps.setInt(5, points);
-            ps.setString(6, username);
+            ps.setString(1, username);
+            ps.setString(2, username);
 
-            return ps.executeUpdate() == 1;
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
         } catch (Exception e) {
             e.printStackTrace();
-            return false;
         }
+        return 0;
     }
 
     /**
@@ -164,31 +335,24 @@ public class CustomerLoyaltyDAO extends AbstractDAO<CustomerLoyalty> {
         if (pointsToUse <= 0)
             return false;
 
-        CustomerLoyalty cl = getByUsername(username);
-        if (cl == null || cl.getPoints() < pointsToUse)
-            return false;
-
+        // Balance check and ledger append in one statement (no read-modify-write)
         String sql = """
-                UPDATE CustomerLoyalty
-                SET points = points - ?,
-                    tier = CASE
-                        WHEN points - ? >= 2500 THEN 'PLATINUM'
-                        WHEN points - ? >= 1000 THEN 'GOLD'
-                        WHEN points - ? >= 500  THEN 'SILVER'
-                        ELSE 'BRONZE'
-                    END
-                WHERE username = ? AND points >= ?
+                INSERT INTO LoyaltyLedger(username, points_delta, amount, reason)
+                SELECT ?, ?, 0, 'REDEEM'
+                FROM DUAL
+                WHERE COALESCE((SELECT points FROM CustomerLoyalty WHERE username = ?), 0)
+                    + COALESCE((SELECT SUM(points_delta) FROM LoyaltyLedger
+                                WHERE username = ? AND applied = FALSE), 0) >= ?
                 """;
 
         try (Connection con = DBUtil.getConnection();
                 PreparedStatement ps = con.prepareStatement(sql)) {
 
-            ps.setInt(1, pointsToUse);
-            ps.setInt(2, pointsToUse);
-            ps.setInt(3, pointsToUse);
-            ps.setInt(4, pointsToUse);
-            ps.setString(5, username);
-            ps.setInt(6, pointsToUse);
+            ps.setString(1, username);
+            ps.setInt(2, -pointsToUse);
+            ps.setString(3, username);
+            ps.setString(4, username);
+            ps.setInt(5, pointsToUse);
             return ps.executeUpdate() == 1;
         } catch (Exception e) {
             e.printStackTrace();
@@ -207,7 +371,7 @@ public class CustomerLoyaltyDAO extends AbstractDAO<CustomerLoyalty> {
 
         String sql = """
                 SELECT * FROM CustomerLoyalty
-                ORDER BY points DESC
+                ORDER BY points DESC, username
                 LIMIT ?
                 """;
 
@@ -227,4 +391,37 @@ public class CustomerLoyaltyDAO extends AbstractDAO<CustomerLoyalty> {
 
         return list;
     }
+
+    /**
+     * Leaderboard rank of a customer (1 = most points, ties by username).
+     * Counts over the (points, username) index only.
+     *
+     * @return rank, or -1 if the customer has no loyalty record
+     */
+    public static int getRank(String username) {
+        String sql = """
+                SELECT 1 + COUNT(o.username)
+                FROM CustomerLoyalty me
+                LEFT JOIN CustomerLoyalty o
+                  ON o.points > me.points
+                  OR (o.points = me.points AND o.username < me.username)
+                WHERE me.username = ?
+                GROUP BY me.username
+                """;
+
+        try (Connection con = DBUtil.getConnection();
+                PreparedStatement ps = con.prepareStatement(sql)) {
+
+            ps.setString(1, username);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return -1;
+    }
 }
@@ -0,0 +1,21 @@
+package dao;
+
+/**
+ * A database operation failed. Carries the name of the operation so async
+ * callers can report which load broke; the driver exception is the cause.
+ */
+public class DataAccessException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String operation;
+
+    public DataAccessException(String operation, Throwable cause) {
+        super(operation + " failed: " + cause.getMessage(), cause);
+        this.operation = operation;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+}
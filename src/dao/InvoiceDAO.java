@@ -2,19 +2,42 @@ package dao;
 
 import model.Invoice;
 import util.DBUtil;
+import util.InvoiceCodec;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.*;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * DAO for Invoice operations.
  * Handles PDF blob and CLOB content storage.
  * 
+ * PDFs can be stored from and read back to streams (see
+ * createInvoice(int, String, Path, ...) and copyPdfTo), so memory use does not
+ * grow with invoice size. Connector/J always reads a whole LONGBLOB value into
+ * memory, so reads pull SUBSTRING slices rather than using one getBinaryStream.
+ * 
+ * Archived invoices (see compactBatch) keep their PDF, text and log as
+ * compressed InvoiceBlob rows keyed by content hash, shared between invoices
+ * with identical parts. They are only decompressed when viewed.
+ * 
  * INHERITANCE: Extends AbstractDAO<Invoice>
  */
 public class InvoiceDAO extends AbstractDAO<Invoice> {
 
     private static final InvoiceDAO INSTANCE = new InvoiceDAO();
 
+    private static final int CHUNK_SIZE = 256 * 1024;
+    private static final byte[] PDF_SIGNATURE = "%PDF-1.".getBytes(StandardCharsets.US_ASCII);
+
     public static InvoiceDAO getInstance() {
         return INSTANCE;
     }
@@ -29,15 +52,42 @@ public class InvoiceDAO extends AbstractDAO<Invoice> {
         return "invoice_id";
     }
 
+    @Override
+    protected String getColumns(Projection projection) {
+        return projection == Projection.SUMMARY
+                ? "invoice_id, order_id, order_status, created_at, pdf_hash, content_hash, log_hash"
+                : "*";
+    }
+
     @Override
     protected Invoice mapResultSetToEntity(ResultSet rs) throws Exception {
+        return mapResultSetToEntity(rs, Projection.FULL);
+    }
+
+    @Override
+    protected Invoice mapResultSetToEntity(ResultSet rs, Projection projection) throws Exception {
         Invoice invoice = new Invoice();
-        invoice.setId(rs.getInt("invoice_id"));
+        int id = rs.getInt("invoice_id");
+        invoice.setId(id);
         invoice.setOrderId(rs.getInt("order_id"));
-        invoice.setInvoicePdf(rs.getBytes("invoice_pdf"));
-        invoice.setInvoiceContent(rs.getString("invoice_content"));
-        invoice.setTransactionLog(rs.getString("transaction_log"));
+        if (projection == Projection.SUMMARY) {
+            invoice.setInvoicePdfLoader(lazyColumn("invoice_pdf", id, r -> r.getBytes(1)));
+            invoice.setInvoiceContentLoader(lazyColumn("invoice_content", id, r -> r.getString(1)));
+            invoice.setTransactionLogLoader(lazyColumn("transaction_log", id, r -> r.getString(1)));
+        } else {
+            invoice.setInvoicePdf(rs.getBytes("invoice_pdf"));
+            invoice.setInvoiceContent(rs.getString("invoice_content"));
+            invoice.setTransactionLog(rs.getString("transaction_log"));
+        }
         invoice.setCreatedAt(rs.getTimestamp("created_at"));
+        try {
+            invoice.setOrderStatus(rs.getString("order_status"));
+            invoice.setPdfHash(rs.getString("pdf_hash"));
+            invoice.setContentHash(rs.getString("content_hash"));
+            invoice.setLogHash(rs.getString("log_hash"));
+        } catch (SQLException e) {
+            // Archive columns not added yet
+        }
         return invoice;
     }
 
@@ -93,7 +143,17 @@ public class InvoiceDAO extends AbstractDAO<Invoice> {
      * Find invoice by order ID.
      */
     public Invoice findByOrderId(int orderId) {
-        String sql = "SELECT * FROM Invoice WHERE order_id = ?";
+        return findByOrderId(orderId, Projection.FULL);
+    }
+
+    /**
+     * Find invoice by order ID; with SUMMARY, PDF and texts load on first
+     * access.
+     */
+    public Invoice findByOrderId(int orderId, Projection projection) {
+        // The newest row, if the invoice was stored again after a status change
+        String sql = "SELECT " + getColumns(projection)
+                + " FROM Invoice WHERE order_id = ? ORDER BY invoice_id DESC LIMIT 1";
 
         try (Connection con = getConnection();
                 PreparedStatement ps = con.prepareStatement(sql)) {
@@ -102,7 +162,7 @@ public class InvoiceDAO extends AbstractDAO<Invoice> {
 
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    return mapResultSetToEntity(rs);
+                    return mapResultSetToEntity(rs, projection);
                 }
             }
         } catch (Exception e) {
@@ -111,12 +171,340 @@ public class InvoiceDAO extends AbstractDAO<Invoice> {
         return null;
     }
 
+    /**
+     * Whether an invoice was already stored for the order (no BLOB read).
+     */
+    public static boolean existsForOrder(int orderId) {
+        String sql = "SELECT 1 FROM Invoice WHERE order_id = ? LIMIT 1";
+
+        try (Connection con = INSTANCE.getConnection();
+                PreparedStatement ps = con.prepareStatement(sql)) {
+
+            ps.setInt(1, orderId);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Create and save an invoice whose PDF is streamed from a file in a
+     * single INSERT.
+     *
+     * @param orderStatus status of the order the PDF was rendered for
+     * @return saved invoice (without PDF bytes) or null on failure
+     */
+    public static Invoice createInvoice(int orderId, String orderStatus, Path pdfFile,
+            String content, String transactionLog) {
+        String sql = """
+                INSERT INTO Invoice(order_id, order_status, invoice_pdf, invoice_content, transaction_log)
+                VALUES(?, ?, ?, ?, ?)
+                """;
+
+        try (Connection con = DBUtil.getConnection();
+                PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+                InputStream in = Files.newInputStream(pdfFile)) {
+
+            Invoice invoice = new Invoice();
+            invoice.setOrderId(orderId);
+            invoice.setInvoiceContent(content);
+            invoice.setTransactionLog(transactionLog);
+
+            ps.setInt(1, orderId);
+            ps.setString(2, orderStatus);
+            ps.setBinaryStream(3, in, Files.size(pdfFile));
+            if (content == null) {
+                ps.setNull(4, Types.CLOB);
+            } else {
+                ps.setString(4, content);
+            }
+            if (transactionLog == null) {
+                ps.setNull(5, Types.CLOB);
+            } else {
+                ps.setString(5, transactionLog);
+            }
+            ps.executeUpdate();
+
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (!keys.next())
+                    return null;
+                invoice.setId(keys.getInt(1));
+            }
+            return invoice;
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Stream the stored PDF of an order to {@code out}, CHUNK_SIZE at a time.
+     * Only real PDFs are copied (not the older text pseudo-PDFs), and only
+     * once the order is delivered or cancelled and the PDF was rendered for
+     * that status; before that the invoice changes with the order and has to
+     * be rendered from live data.
+     *
+     * @return true if a stored PDF was written, false if there is none
+     */
+    public static boolean copyPdfTo(int orderId, OutputStream out) throws IOException {
+        String headSql = """
+                SELECT i.invoice_id, i.pdf_hash, LENGTH(i.invoice_pdf) AS len,
+                       SUBSTRING(i.invoice_pdf, 1, ?) AS head
+                FROM Invoice i
+                JOIN Orders o ON o.order_id = i.order_id
+                WHERE i.order_id = ? AND (i.invoice_pdf IS NOT NULL OR i.pdf_hash IS NOT NULL)
+                  AND o.status IN ('DELIVERED', 'CANCELLED') AND i.order_status = o.status
+                ORDER BY i.invoice_id DESC
+                LIMIT 1
+                """;
+        String chunkSql = "SELECT SUBSTRING(invoice_pdf, ?, ?) FROM Invoice WHERE invoice_id = ?";
+
+        int invoiceId;
+        long length;
+        Connection con;
+        try {
+            con = DBUtil.getConnection();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+
+        try (con) {
+
+            try (PreparedStatement ps = con.prepareStatement(headSql)) {
+                ps.setInt(1, PDF_SIGNATURE.length);
+                ps.setInt(2, orderId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next())
+                        return false;
+
+                    String pdfHash = rs.getString("pdf_hash");
+                    if (pdfHash != null)
+                        return copyArchivedPdf(con, pdfHash, out);
+
+                    byte[] head = rs.getBytes("head");
+                    if (head == null || !Arrays.equals(head, PDF_SIGNATURE))
+                        return false;
+                    invoiceId = rs.getInt("invoice_id");
+                    length = rs.getLong("len");
+                }
+            }
+
+            try (PreparedStatement ps = con.prepareStatement(chunkSql)) {
+                ps.setInt(2, CHUNK_SIZE);
+                ps.setInt(3, invoiceId);
+                for (long pos = 1; pos <= length; pos += CHUNK_SIZE) {
+                    ps.setLong(1, pos);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            try (InputStream in = rs.getBinaryStream(1)) {
+                                in.transferTo(out);
+                            }
+                        }
+                    }
+                }
+            }
+            return true;
+
+        } catch (SQLException e) {
+            // Part of the PDF may already be written - let the caller discard it
+            throw new IOException("Reading stored invoice failed", e);
+        }
+    }
+
+    private static boolean copyArchivedPdf(Connection con, String hash, OutputStream out)
+            throws SQLException, IOException {
+        String sql = "SELECT codec, data FROM InvoiceBlob WHERE content_hash = ?";
+
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setString(1, hash);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next())
+                    return false;
+                String codec = rs.getString("codec");
+                byte[] data = rs.getBytes("data");
+                if (!InvoiceCodec.startsWith(codec, data, PDF_SIGNATURE))
+                    return false;
+                InvoiceCodec.decompress(codec, data, out);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Decompressed bytes of an archived invoice part, or null if missing.
+     */
+    public static byte[] loadArchived(String hash) {
+        String sql = "SELECT codec, raw_size, data FROM InvoiceBlob WHERE content_hash = ?";
+
+        try (Connection con = DBUtil.getConnection();
+                PreparedStatement ps = con.prepareStatement(sql)) {
+
+            ps.setString(1, hash);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream(rs.getInt("raw_size"));
+                    InvoiceCodec.decompress(rs.getString("codec"), rs.getBytes("data"), out);
+                    return out.toByteArray();
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Decompressed text of an archived invoice part, or null if missing.
+     */
+    public static String loadArchivedText(String hash) {
+        byte[] raw = loadArchived(hash);
+        return raw != null ? new String(raw, StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * Archive up to {@code limit} invoices: compress each part into
+     * InvoiceBlob (once per distinct content) and replace the row's PDF,
+     * text and log with their hashes, in one transaction.
+     *
+     * @return number of invoices archived
+     */
+    public static int compactBatch(int limit) {
+        String selectSql = """
+                SELECT invoice_id, invoice_pdf, invoice_content, transaction_log
+                FROM Invoice
+                WHERE archived = FALSE
+                ORDER BY invoice_id
+                LIMIT ?
+                FOR UPDATE
+                """;
+        String blobSql = "INSERT IGNORE INTO InvoiceBlob(content_hash, codec, raw_size, data) VALUES(?, ?, ?, ?)";
+        String markSql = """
+                UPDATE Invoice
+                SET pdf_hash = ?, content_hash = ?, log_hash = ?,
+                    invoice_pdf = NULL, invoice_content = NULL, transaction_log = NULL,
+                    archived = TRUE
+                WHERE invoice_id = ?
+                """;
+
+        Connection con = null;
+        try {
+            con = DBUtil.getConnection();
+            con.setAutoCommit(false);
+
+            int count = 0;
+            Set<String> written = new HashSet<>();
+
+            try (PreparedStatement selectPs = con.prepareStatement(selectSql);
+                    PreparedStatement blobPs = con.prepareStatement(blobSql);
+                    PreparedStatement markPs = con.prepareStatement(markSql)) {
+
+                selectPs.setInt(1, limit);
+                try (ResultSet rs = selectPs.executeQuery()) {
+                    while (rs.next()) {
+                        markPs.setString(1, archivePart(blobPs, written, InvoiceCodec.PDF_V2,
+                                rs.getBytes("invoice_pdf")));
+                        markPs.setString(2, archivePart(blobPs, written, InvoiceCodec.TEXT_V2,
+                                utf8(rs.getString("invoice_content"))));
+                        markPs.setString(3, archivePart(blobPs, written, InvoiceCodec.TEXT_V2,
+                                utf8(rs.getString("transaction_log"))));
+                        markPs.setInt(4, rs.getInt("invoice_id"));
+                        markPs.addBatch();
+                        count++;
+                    }
+                }
+
+                if (count == 0) {
+                    con.rollback();
+                    return 0;
+                }
+
+                blobPs.executeBatch();
+                markPs.executeBatch();
+            }
+
+            con.commit();
+            return count;
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            try {
+                if (con != null)
+                    con.rollback();
+            } catch (Exception ignored) {
+            }
+            return 0;
+        } finally {
+            try {
+                if (con != null)
+                    con.close();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    private static String archivePart(PreparedStatement blobPs, Set<String> written, String codec, byte[] raw)
+            throws SQLException {
+        if (raw == null)
+            return null;
+
+        String hash = InvoiceCodec.hash(raw);
+        if (written.add(hash)) {
+            // INSERT IGNORE: content already archived by another invoice is kept as is
+            blobPs.setString(1, hash);
+            blobPs.setString(2, codec);
+            blobPs.setInt(3, raw.length);
+            blobPs.setBytes(4, InvoiceCodec.compress(codec, raw));
+            blobPs.addBatch();
+        }
+        return hash;
+    }
+
+    private static byte[] utf8(String s) {
+        return s != null ? s.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * Bytes used by invoice payloads: raw columns plus archived blobs.
+     */
+    public static long getStorageBytes() {
+        String sql = """
+                SELECT COALESCE((SELECT SUM(COALESCE(LENGTH(invoice_pdf), 0)
+                                          + COALESCE(LENGTH(invoice_content), 0)
+                                          + COALESCE(LENGTH(transaction_log), 0)) FROM Invoice), 0)
+                     + COALESCE((SELECT SUM(LENGTH(data)) FROM InvoiceBlob), 0)
+                """;
+
+        try (Connection con = DBUtil.getConnection();
+                PreparedStatement ps = con.prepareStatement(sql);
+                ResultSet rs = ps.executeQuery()) {
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return -1;
+    }
+
     /**
      * Get invoice PDF bytes.
      */
     public static byte[] getInvoicePdf(int orderId) {
-        Invoice invoice = INSTANCE.findByOrderId(orderId);
-        return invoice != null ? invoice.getInvoicePdf() : null;
+        // Only the PDF is needed; leave the texts unread
+        Invoice invoice = INSTANCE.findByOrderId(orderId, Projection.SUMMARY);
+        if (invoice == null)
+            return null;
+        // Archiving nulls invoice_pdf, so an archived row needs no PDF read
+        if (invoice.getPdfHash() != null)
+            return loadArchived(invoice.getPdfHash());
+        return invoice.getInvoicePdf();
     }
 
     /**
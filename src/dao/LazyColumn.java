@@ -0,0 +1,63 @@
+package dao;
+
+import util.DBUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+/**
+ * One column of one row, read on the first get() and kept.
+ *
+ * Entities mapped with Projection.SUMMARY receive these in place of their
+ * heavy columns (images, invoice PDFs and texts), so the BLOB or CLOB is
+ * only fetched if something actually reads it.
+ */
+public class LazyColumn<V> implements Supplier<V> {
+
+    /**
+     * Reads the value from column 1 of the result row.
+     */
+    @FunctionalInterface
+    public interface Reader<V> {
+        V read(ResultSet rs) throws SQLException;
+    }
+
+    private final String sql;
+    private final int id;
+    private final Reader<V> reader;
+
+    private boolean loaded = false;
+    private V value;
+
+    LazyColumn(String table, String idColumn, String column, int id, Reader<V> reader) {
+        this.sql = "SELECT " + column + " FROM " + table + " WHERE " + idColumn + "=?";
+        this.id = id;
+        this.reader = reader;
+    }
+
+    /**
+     * The column value, or null if the row is gone or the read failed.
+     */
+    @Override
+    public synchronized V get() {
+        if (loaded)
+            return value;
+
+        try (Connection con = DBUtil.getConnection();
+                PreparedStatement ps = con.prepareStatement(sql)) {
+
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                value = rs.next() ? reader.read(rs) : null;
+            }
+            loaded = true;
+        } catch (Exception e) {
+            // Not marked loaded: the next get() tries again
+            e.printStackTrace();
+        }
+        return value;
+    }
+}
@@ -10,6 +10,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * DAO for Order operations.
@@ -25,6 +26,31 @@ public class OrderDAO extends AbstractDAO<Order> {
         return INSTANCE;
     }
 
+    /**
+     * Listener notified after an order changes status (taken, delivered,
+     * cancelled).
+     */
+    @FunctionalInterface
+    public interface OrderChangeListener {
+        void onOrderChanged(int orderId);
+    }
+
+    private static final List<OrderChangeListener> ORDER_LISTENERS = new CopyOnWriteArrayList<>();
+
+    public static void addOrderChangeListener(OrderChangeListener listener) {
+        ORDER_LISTENERS.add(listener);
+    }
+
+    private static void fireOrderChanged(int orderId) {
+        for (OrderChangeListener listener : ORDER_LISTENERS) {
+            try {
+                listener.onOrderChanged(orderId);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
     @Override
     protected String getTableName() {
         return "Orders";
@@ -107,21 +133,13 @@ public class OrderDAO extends AbstractDAO<Order> {
                     itemPs.setDouble(4, i.getUnitPrice());
                     itemPs.addBatch();
 
+                    // Low-stock alerts are raised by LowStockAlertService from the
+                    // stock-change event fired here
                     boolean stockOk = ProductDAO.decreaseStockKg(con, i.getProductId(), i.getKg());
                     if (!stockOk) {
                         con.rollback();
                         return false;
                     }
-
-                    // Check if stock fell below threshold and create alert for owner
-                    model.Product updatedProduct = ProductDAO.getProductById(i.getProductId());
-                    if (updatedProduct != null && updatedProduct.getStock() <= updatedProduct.getThreshold()) {
-                        SystemMessageDAO.createLowStockAlert(
-                                updatedProduct.getProductId(),
-                                updatedProduct.getName(),
-                                updatedProduct.getStock(),
-                                updatedProduct.getThreshold());
-                    }
                 }
                 itemPs.executeBatch();
             }
@@ -136,14 +154,16 @@ public class OrderDAO extends AbstractDAO<Order> {
                 // Table might not exist yet
             }
 
-            con.commit();
-
-            // Add loyalty points
+            // 4) Loyalty points: one ledger row, committed with the order.
+            // Balance and tier are folded in later by LoyaltyAggregator.
             try {
-                CustomerLoyaltyDAO.addPointsFromOrder(username, totalVatInc);
+                CustomerLoyaltyDAO.addPointsFromOrder(con, username, totalVatInc, orderId);
             } catch (Exception ignored) {
+                // Table might not exist yet
             }
 
+            con.commit();
+
             return true;
 
         } catch (Exception e) {
@@ -169,6 +189,15 @@ public class OrderDAO extends AbstractDAO<Order> {
      * Get available orders with full details (for carrier).
      */
     public static List<OrderDetail> getAvailableOrderDetails() {
+        try {
+            return queryAvailableOrderDetails();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    static List<OrderDetail> queryAvailableOrderDetails() throws Exception {
         List<OrderDetail> list = new ArrayList<>();
 
         String sql = """
@@ -201,8 +230,6 @@ public class OrderDAO extends AbstractDAO<Order> {
 
                 list.add(od);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
 
         return list;
@@ -303,6 +330,7 @@ public class OrderDAO extends AbstractDAO<Order> {
                 if (affected == 1) {
                     // Add status history
                     OrderStatusHistoryDAO.addHistory(id, "IN_PROGRESS", carrierUsername, "Order taken by carrier");
+                    fireOrderChanged(id);
                 }
             }
         } catch (Exception e) {
@@ -316,6 +344,15 @@ public class OrderDAO extends AbstractDAO<Order> {
      * Get current orders for carrier.
      */
     public static List<OrderDetail> getCurrentOrderDetails(String carrierUsername) {
+        try {
+            return queryCurrentOrderDetails(carrierUsername);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    static List<OrderDetail> queryCurrentOrderDetails(String carrierUsername) throws Exception {
         List<OrderDetail> list = new ArrayList<>();
 
         String sql = """
@@ -348,8 +385,6 @@ public class OrderDAO extends AbstractDAO<Order> {
                     list.add(od);
                 }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
 
         return list;
@@ -447,6 +482,7 @@ public class OrderDAO extends AbstractDAO<Order> {
 
             if (success) {
                 OrderStatusHistoryDAO.addHistory(orderId, "DELIVERED", carrierUsername, "Order delivered");
+                fireOrderChanged(orderId);
             }
 
             return success;
@@ -466,6 +502,15 @@ public class OrderDAO extends AbstractDAO<Order> {
      * Get orders by customer with full details.
      */
     public static List<OrderDetail> getOrderDetailsByUser(String username) {
+        try {
+            return queryOrderDetailsByUser(username);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    static List<OrderDetail> queryOrderDetailsByUser(String username) throws Exception {
         List<OrderDetail> list = new ArrayList<>();
 
         String sql = """
@@ -499,8 +544,6 @@ public class OrderDAO extends AbstractDAO<Order> {
                     list.add(od);
                 }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
 
         return list;
@@ -591,6 +634,7 @@ public class OrderDAO extends AbstractDAO<Order> {
                     for (OrderDetail.OrderItem item : items) {
                         ProductDAO.addStock(item.getProductId(), item.getKg());
                     }
+                    fireOrderChanged(orderId);
                 }
 
                 return success;
@@ -607,6 +651,15 @@ public class OrderDAO extends AbstractDAO<Order> {
      * Get all orders (for owner view).
      */
     public static List<OrderDetail> getAllOrderDetails() {
+        try {
+            return queryAllOrderDetails();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    static List<OrderDetail> queryAllOrderDetails() throws Exception {
         List<OrderDetail> list = new ArrayList<>();
 
         String sql = """
@@ -639,8 +692,6 @@ public class OrderDAO extends AbstractDAO<Order> {
                 od.setCustomerPhone(rs.getString("phone"));
                 list.add(od);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
 
         return list;
@@ -650,6 +701,15 @@ public class OrderDAO extends AbstractDAO<Order> {
      * Get order detail by ID.
      */
     public static OrderDetail getOrderDetail(int orderId) {
+        try {
+            return queryOrderDetail(orderId);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    static OrderDetail queryOrderDetail(int orderId) throws Exception {
         String sql = """
                 SELECT o.order_id, o.username, o.status, o.requested_delivery,
                        o.total_cost, o.created_at, o.delivered_at, o.carrier_username,
@@ -684,11 +744,39 @@ public class OrderDAO extends AbstractDAO<Order> {
                     return od;
                 }
             }
+        }
+
+        return null;
+    }
+
+    /**
+     * Order IDs created in [from, to), oldest first (batch invoice runs).
+     */
+    public static List<Integer> getOrderIdsBetween(Timestamp from, Timestamp to) {
+        List<Integer> ids = new ArrayList<>();
+
+        String sql = """
+                SELECT order_id FROM Orders
+                WHERE created_at >= ? AND created_at < ?
+                ORDER BY order_id
+                """;
+
+        try (Connection con = DBUtil.getConnection();
+                PreparedStatement ps = con.prepareStatement(sql)) {
+
+            ps.setTimestamp(1, from);
+            ps.setTimestamp(2, to);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
 
-        return null;
+        return ids;
     }
 
     // ===================== REPORTS =====================
@@ -697,6 +785,15 @@ public class OrderDAO extends AbstractDAO<Order> {
      * Get daily order count for last N days.
      */
     public static Map<String, Integer> getDailyOrderCounts(int days) {
+        try {
+            return queryDailyOrderCounts(days);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new HashMap<>();
+        }
+    }
+
+    static Map<String, Integer> queryDailyOrderCounts(int days) throws Exception {
         Map<String, Integer> counts = new HashMap<>();
 
         String sql = """
@@ -717,8 +814,6 @@ public class OrderDAO extends AbstractDAO<Order> {
                     counts.put(rs.getString("order_date"), rs.getInt("cnt"));
                 }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
 
         return counts;
@@ -728,6 +823,15 @@ public class OrderDAO extends AbstractDAO<Order> {
      * Get daily revenue for last N days.
      */
     public static Map<String, Double> getDailyRevenue(int days) {
+        try {
+            return queryDailyRevenue(days);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new HashMap<>();
+        }
+    }
+
+    static Map<String, Double> queryDailyRevenue(int days) throws Exception {
         Map<String, Double> revenue = new HashMap<>();
 
         String sql = """
@@ -749,8 +853,6 @@ public class OrderDAO extends AbstractDAO<Order> {
                     revenue.put(rs.getString("order_date"), rs.getDouble("total"));
                 }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
 
         return revenue;
@@ -760,6 +862,15 @@ public class OrderDAO extends AbstractDAO<Order> {
      * Get order status counts.
      */
     public static Map<String, Integer> getOrderStatusCounts() {
+        try {
+            return queryOrderStatusCounts();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new HashMap<>();
+        }
+    }
+
+    static Map<String, Integer> queryOrderStatusCounts() throws Exception {
         Map<String, Integer> counts = new HashMap<>();
 
         String sql = """
@@ -775,8 +886,6 @@ public class OrderDAO extends AbstractDAO<Order> {
             while (rs.next()) {
                 counts.put(rs.getString("status"), rs.getInt("cnt"));
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
 
         return counts;
@@ -2,12 +2,21 @@ package dao;
 
 import model.Product;
 import util.DBUtil;
+import util.ImageCache;
+import util.ImageTranscoder;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
 
 /**
  * DAO for Product operations.
@@ -25,6 +34,37 @@ public class ProductDAO extends AbstractDAO<Product> {
         return INSTANCE;
     }
 
+    // ========== STOCK CHANGE EVENTS ==========
+
+    /**
+     * Listener notified after a product's stock or threshold has changed.
+     * Listeners must not block; they are called on the thread that did the update.
+     */
+    @FunctionalInterface
+    public interface StockChangeListener {
+        void onStockChanged(int productId);
+    }
+
+    private static final List<StockChangeListener> STOCK_LISTENERS = new CopyOnWriteArrayList<>();
+
+    public static void addStockChangeListener(StockChangeListener listener) {
+        STOCK_LISTENERS.add(listener);
+    }
+
+    public static void removeStockChangeListener(StockChangeListener listener) {
+        STOCK_LISTENERS.remove(listener);
+    }
+
+    private static void fireStockChanged(int productId) {
+        for (StockChangeListener listener : STOCK_LISTENERS) {
+            try {
+                listener.onStockChanged(productId);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
     // POLYMORPHISM: Implement abstract methods from AbstractDAO
     @Override
     protected String getTableName() {
@@ -36,8 +76,22 @@ public class ProductDAO extends AbstractDAO<Product> {
         return "product_id";
     }
 
+    // Everything but the image BLOBs
+    private static final String SUMMARY_COLUMNS = "product_id, name, price, stock, type, threshold, discount_percent, "
+            + "image_hash";
+
+    @Override
+    protected String getColumns(Projection projection) {
+        return projection == Projection.SUMMARY ? SUMMARY_COLUMNS : "*";
+    }
+
     @Override
     protected Product mapResultSetToEntity(ResultSet rs) throws Exception {
+        return mapResultSetToEntity(rs, Projection.FULL);
+    }
+
+    @Override
+    protected Product mapResultSetToEntity(ResultSet rs, Projection projection) throws Exception {
         Product p = new Product();
         p.setId(rs.getInt("product_id"));
         p.setName(rs.getString("name"));
@@ -45,7 +99,12 @@ public class ProductDAO extends AbstractDAO<Product> {
         p.setStock(rs.getDouble("stock"));
         p.setType(rs.getString("type"));
         p.setThreshold(rs.getInt("threshold"));
-        p.setImage(rs.getBytes("image"));
+        if (projection == Projection.SUMMARY) {
+            p.setImageLoader(cachedImage("image", p.getId(), rs.getString("image_hash")));
+        } else {
+            p.setImage(rs.getBytes("image"));
+            p.setThumbnail(rs.getBytes("thumbnail"));
+        }
         try {
             double discount = rs.getDouble("discount_percent");
             p.setDiscountPercent(discount);
@@ -56,6 +115,129 @@ public class ProductDAO extends AbstractDAO<Product> {
         return p;
     }
 
+    /**
+     * Loader for an image column (image or thumbnail) that tries the local
+     * ImageCache before the database, and caches what it fetches. A null
+     * hash means the column is empty (SchemaFixer backfills hashes).
+     */
+    private Supplier<byte[]> cachedImage(String column, int productId, String hash) {
+        if (hash == null)
+            return null;
+        LazyColumn<byte[]> fromDb = lazyColumn(column, productId, r -> r.getBytes(1));
+        return () -> {
+            byte[] data = ImageCache.get(hash);
+            if (data == null) {
+                data = fromDb.get();
+                if (data != null)
+                    ImageCache.put(hash, data);
+            }
+            return data;
+        };
+    }
+
+    // ========== BATCH OPERATIONS ==========
+
+    @Override
+    protected String getInsertSql() {
+        return """
+                INSERT INTO Product(name, price, stock, type, threshold, image, thumbnail, discount_percent,
+                                    image_hash, thumbnail_hash)
+                VALUES(?,?,?,?,?,?,?,?,?,?)
+                """;
+    }
+
+    @Override
+    protected void bindInsert(PreparedStatement ps, Product p) throws Exception {
+        ps.setString(1, p.getName());
+        ps.setDouble(2, p.getPrice());
+        ps.setDouble(3, p.getStock());
+        ps.setString(4, p.getType());
+        // Threshold validation: minimum 1
+        ps.setInt(5, Math.max(1, p.getThreshold()));
+        setBlob(ps, 6, p.getImage());
+        setBlob(ps, 7, p.getThumbnail());
+        ps.setDouble(8, p.getDiscountPercent());
+        ps.setString(9, hashOf(p.getImage()));
+        ps.setString(10, hashOf(p.getThumbnail()));
+    }
+
+    // The image is left alone: summary-mapped products only hold a loader.
+    // So is stock: writing back a value read earlier would undo the orders
+    // and restocks since; it only changes through addStock/decreaseStock.
+    @Override
+    protected String getUpdateSql() {
+        return """
+                UPDATE Product SET name=?, price=?, type=?, threshold=?, discount_percent=?
+                WHERE product_id=?
+                """;
+    }
+
+    @Override
+    protected void bindUpdate(PreparedStatement ps, Product p) throws Exception {
+        ps.setString(1, p.getName());
+        ps.setDouble(2, p.getPrice());
+        ps.setString(3, p.getType());
+        ps.setInt(4, Math.max(1, p.getThreshold()));
+        ps.setDouble(5, p.getDiscountPercent());
+        ps.setInt(6, p.getId());
+    }
+
+    @Override
+    public List<Integer> saveAll(List<Product> products, int chunkSize) {
+        List<Integer> ids = super.saveAll(products, chunkSize);
+        ids.forEach(ProductDAO::fireStockChanged);
+        return ids;
+    }
+
+    @Override
+    public int updateAll(List<Product> products, int chunkSize) {
+        int updated = super.updateAll(products, chunkSize);
+        if (updated > 0)
+            products.forEach(p -> fireStockChanged(p.getId()));
+        return updated;
+    }
+
+    /**
+     * Same cascade as deleteProduct, one IN list per table and chunk.
+     */
+    @Override
+    public int deleteAll(List<Integer> productIds, int chunkSize) {
+        checkChunkSize(chunkSize);
+        if (productIds.isEmpty())
+            return 0;
+
+        try (Connection con = DBUtil.getConnection()) {
+            con.setAutoCommit(false);
+            try {
+                deleteIn(con, "SystemMessage", "related_product_id", productIds, chunkSize);
+                deleteIn(con, "OrderItems", "product_id", productIds, chunkSize);
+                deleteIn(con, "Orders", "product_id", productIds, chunkSize);
+                int deleted = deleteIn(con, "Product", "product_id", productIds, chunkSize);
+                con.commit();
+                return deleted;
+            } catch (Exception e) {
+                con.rollback();
+                throw e;
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    // Stored next to each image BLOB; the key of the local ImageCache
+    private static String hashOf(byte[] data) {
+        return data != null ? ImageCache.hash(data) : null;
+    }
+
+    private static void setBlob(PreparedStatement ps, int index, byte[] data) throws Exception {
+        if (data == null) {
+            ps.setNull(index, java.sql.Types.BLOB);
+        } else {
+            ps.setBytes(index, data);
+        }
+    }
+
     // ========== STATIC METHODS ==========
 
     /**
@@ -87,7 +269,7 @@ public class ProductDAO extends AbstractDAO<Product> {
             double stock,
             String type,
             int threshold) {
-        return addProduct(name, price, stock, type, threshold, null);
+        return addProduct(name, price, stock, type, threshold, null, null);
     }
 
     public static boolean addProduct(String name,
@@ -96,32 +278,62 @@ public class ProductDAO extends AbstractDAO<Product> {
             String type,
             int threshold,
             byte[] image) {
+        return addProduct(name, price, stock, type, threshold, image, null);
+    }
+
+    /**
+     * Add a product with both image renditions (see ImageTranscoder).
+     */
+    public static boolean addProduct(String name,
+            double price,
+            double stock,
+            String type,
+            int threshold,
+            ImageTranscoder.Renditions images) {
+        return images == null
+                ? addProduct(name, price, stock, type, threshold, null, null)
+                : addProduct(name, price, stock, type, threshold, images.image(), images.thumbnail());
+    }
+
+    private static boolean addProduct(String name,
+            double price,
+            double stock,
+            String type,
+            int threshold,
+            byte[] image,
+            byte[] thumbnail) {
 
         // Threshold validation: minimum 1
         if (threshold < 1)
             threshold = 1;
 
         String sql = """
-                INSERT INTO Product(name, price, stock, type, threshold, image)
-                VALUES(?,?,?,?,?,?)
+                INSERT INTO Product(name, price, stock, type, threshold, image, thumbnail, image_hash, thumbnail_hash)
+                VALUES(?,?,?,?,?,?,?,?,?)
                 """;
 
         try (Connection con = DBUtil.getConnection();
-                PreparedStatement ps = con.prepareStatement(sql)) {
+                PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             ps.setString(1, name);
             ps.setDouble(2, price);
             ps.setDouble(3, stock);
             ps.setString(4, type);
             ps.setInt(5, threshold);
+            setBlob(ps, 6, image);
+            setBlob(ps, 7, thumbnail);
+            ps.setString(8, hashOf(image));
+            ps.setString(9, hashOf(thumbnail));
 
-            if (image == null) {
-                ps.setNull(6, java.sql.Types.BLOB);
-            } else {
-                ps.setBytes(6, image);
-            }
+            if (ps.executeUpdate() != 1)
+                return false;
 
-            return ps.executeUpdate() == 1;
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (keys.next()) {
+                    fireStockChanged(keys.getInt(1));
+                }
+            }
+            return true;
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -129,34 +341,88 @@ public class ProductDAO extends AbstractDAO<Product> {
         }
     }
 
+    /**
+     * Add many products in a few round trips (bulk edits, imports).
+     *
+     * @return the new product ids, or an empty list if nothing was added
+     */
+    public static List<Integer> addProducts(List<Product> products) {
+        return INSTANCE.saveAll(products);
+    }
+
+    /**
+     * Write price, threshold and discount of many products in one
+     * transaction. Stock is not touched, so concurrent orders are safe.
+     *
+     * @return rows updated, or -1 on failure
+     */
+    public static int updatePricing(List<Product> products) {
+        if (products.isEmpty())
+            return 0;
+
+        String sql = "UPDATE Product SET price=?, threshold=?, discount_percent=? WHERE product_id=?";
+
+        try (Connection con = DBUtil.getConnection()) {
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                for (Product p : products) {
+                    ps.setDouble(1, p.getPrice());
+                    ps.setInt(2, Math.max(1, p.getThreshold()));
+                    ps.setDouble(3, p.getDiscountPercent());
+                    ps.setInt(4, p.getProductId());
+                    ps.addBatch();
+                }
+                int updated = 0;
+                for (int r : ps.executeBatch()) {
+                    updated += r == Statement.SUCCESS_NO_INFO ? 1 : Math.max(r, 0);
+                }
+                con.commit();
+                products.forEach(p -> fireStockChanged(p.getProductId()));
+                return updated;
+            } catch (Exception e) {
+                con.rollback();
+                throw e;
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Delete many products, with their alerts and order rows.
+     *
+     * @return products deleted, or -1 on failure
+     */
+    public static int deleteProducts(List<Integer> productIds) {
+        return INSTANCE.deleteAll(productIds);
+    }
+
     /**
      * Get all products (for owner view).
      */
     public static List<Product> getAllProducts() {
+        try {
+            return queryAllProducts();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    static List<Product> queryAllProducts() throws Exception {
         List<Product> list = new ArrayList<>();
 
-        String sql = """
-                SELECT product_id, name, price, stock, type, threshold, image
-                FROM Product
-                ORDER BY name ASC
-                """;
+        // The owner table shows no images; they load lazily if asked for
+        String sql = "SELECT " + SUMMARY_COLUMNS + " FROM Product ORDER BY name ASC";
 
         try (Connection con = DBUtil.getConnection();
                 PreparedStatement ps = con.prepareStatement(sql);
                 ResultSet rs = ps.executeQuery()) {
 
             while (rs.next()) {
-                list.add(new Product(
-                        rs.getInt("product_id"),
-                        rs.getString("name"),
-                        rs.getDouble("price"),
-                        rs.getDouble("stock"),
-                        rs.getString("type"),
-                        rs.getInt("threshold"),
-                        rs.getBytes("image")));
+                list.add(INSTANCE.mapResultSetToEntity(rs, Projection.SUMMARY));
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
 
         return list;
@@ -167,10 +433,19 @@ public class ProductDAO extends AbstractDAO<Product> {
      * Alphabetically sorted.
      */
     public static List<Product> getProductsByType(String type) {
+        try {
+            return queryProductsByType(type);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    static List<Product> queryProductsByType(String type) throws Exception {
         List<Product> list = new ArrayList<>();
 
         String sql = """
-                SELECT product_id, name, price, stock, type, threshold, image, discount_percent
+                SELECT product_id, name, price, stock, type, threshold, image_hash, thumbnail_hash, discount_percent
                 FROM Product
                 WHERE type = ? AND stock >= 0
                 ORDER BY name ASC
@@ -189,8 +464,10 @@ public class ProductDAO extends AbstractDAO<Product> {
                             rs.getDouble("price"),
                             rs.getDouble("stock"),
                             rs.getString("type"),
-                            rs.getInt("threshold"),
-                            rs.getBytes("image"));
+                            rs.getInt("threshold"));
+                    p.setThumbnailHash(rs.getString("thumbnail_hash"));
+                    p.setThumbnailLoader(INSTANCE.cachedImage("thumbnail", p.getId(), p.getThumbnailHash()));
+                    p.setImageLoader(INSTANCE.cachedImage("image", p.getId(), rs.getString("image_hash")));
                     try {
                         p.setDiscountPercent(rs.getDouble("discount_percent"));
                     } catch (Exception e) {
@@ -199,8 +476,6 @@ public class ProductDAO extends AbstractDAO<Product> {
                     list.add(p);
                 }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
 
         return list;
@@ -224,10 +499,19 @@ public class ProductDAO extends AbstractDAO<Product> {
      * Get all available products with stock > 0 (for customer view).
      */
     public static List<Product> getAvailableProducts() {
+        try {
+            return queryAvailableProducts();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    static List<Product> queryAvailableProducts() throws Exception {
         List<Product> list = new ArrayList<>();
 
         String sql = """
-                SELECT product_id, name, price, stock, type, threshold, image, discount_percent
+                SELECT product_id, name, price, stock, type, threshold, image_hash, thumbnail_hash, discount_percent
                 FROM Product
                 WHERE stock >= 0
                 ORDER BY name ASC
@@ -244,8 +528,10 @@ public class ProductDAO extends AbstractDAO<Product> {
                         rs.getDouble("price"),
                         rs.getDouble("stock"),
                         rs.getString("type"),
-                        rs.getInt("threshold"),
-                        rs.getBytes("image"));
+                        rs.getInt("threshold"));
+                p.setThumbnailHash(rs.getString("thumbnail_hash"));
+                p.setThumbnailLoader(INSTANCE.cachedImage("thumbnail", p.getId(), p.getThumbnailHash()));
+                p.setImageLoader(INSTANCE.cachedImage("image", p.getId(), rs.getString("image_hash")));
                 try {
                     p.setDiscountPercent(rs.getDouble("discount_percent"));
                 } catch (Exception e) {
@@ -253,48 +539,111 @@ public class ProductDAO extends AbstractDAO<Product> {
                 }
                 list.add(p);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
 
         return list;
     }
 
+    /**
+     * Card images (see Product.getCardImage) of products listed by the
+     * customer queries, by product id. Thumbnails in the local ImageCache
+     * are read from it; all the others come from one query per
+     * BATCH_SIZE products instead of one per card. Products with no image
+     * are left out.
+     */
+    static Map<Integer, byte[]> queryCardImages(List<Product> products) throws Exception {
+        Map<Integer, byte[]> images = new HashMap<>();
+        Map<Integer, String> missing = new LinkedHashMap<>();
+        for (Product p : products) {
+            byte[] cached = ImageCache.get(p.getThumbnailHash());
+            if (cached != null)
+                images.put(p.getProductId(), cached);
+            else
+                missing.put(p.getProductId(), p.getThumbnailHash());
+        }
+        if (missing.isEmpty())
+            return images;
+
+        // Products stored before thumbnails existed show their full image
+        List<Integer> ids = new ArrayList<>(missing.keySet());
+        try (Connection con = DBUtil.getConnection()) {
+            for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+                List<Integer> chunk = ids.subList(from, Math.min(ids.size(), from + BATCH_SIZE));
+                String sql = "SELECT product_id, COALESCE(thumbnail, image) FROM Product WHERE product_id IN ("
+                        + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+                try (PreparedStatement ps = con.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        ps.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            byte[] data = rs.getBytes(2);
+                            if (data == null)
+                                continue;
+                            int id = rs.getInt(1);
+                            // Ignored unless data is that thumbnail
+                            ImageCache.put(missing.get(id), data);
+                            images.put(id, data);
+                        }
+                    }
+                }
+            }
+        }
+        return images;
+    }
+
     public static List<Product> getLowStockProducts() {
+        try {
+            return queryLowStockProducts();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    static List<Product> queryLowStockProducts() throws Exception {
         List<Product> list = new ArrayList<>();
 
-        String sql = """
-                SELECT product_id, name, price, stock, type, threshold, image, discount_percent
-                FROM Product
-                WHERE stock <= threshold
-                ORDER BY stock
-                """;
+        String sql = "SELECT " + SUMMARY_COLUMNS + " FROM Product WHERE stock <= threshold ORDER BY stock";
 
         try (Connection con = DBUtil.getConnection();
                 PreparedStatement ps = con.prepareStatement(sql);
                 ResultSet rs = ps.executeQuery()) {
 
             while (rs.next()) {
-                Product p = new Product(
-                        rs.getInt("product_id"),
-                        rs.getString("name"),
-                        rs.getDouble("price"),
-                        rs.getDouble("stock"),
-                        rs.getString("type"),
-                        rs.getInt("threshold"),
-                        rs.getBytes("image"));
-                try {
-                    p.setDiscountPercent(rs.getDouble("discount_percent"));
-                } catch (Exception e) {
-                    p.setDiscountPercent(0);
+                list.add(INSTANCE.mapResultSetToEntity(rs, Projection.SUMMARY));
+            }
+        }
+
+        return list;
+    }
+
+    /**
+     * Get stock level of a single product without loading its image.
+     */
+    public static Product getStockLevel(int productId) {
+        String sql = "SELECT product_id, name, price, stock, type, threshold FROM Product WHERE product_id = ?";
+
+        try (Connection con = DBUtil.getConnection();
+                PreparedStatement ps = con.prepareStatement(sql)) {
+
+            ps.setInt(1, productId);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return new Product(
+                            rs.getInt("product_id"),
+                            rs.getString("name"),
+                            rs.getDouble("price"),
+                            rs.getDouble("stock"),
+                            rs.getString("type"),
+                            rs.getInt("threshold"));
                 }
-                list.add(p);
             }
         } catch (Exception e) {
             e.printStackTrace();
         }
-
-        return list;
+        return null;
     }
 
     public static boolean updatePrice(int productId, double newPrice) {
@@ -328,7 +677,10 @@ public class ProductDAO extends AbstractDAO<Product> {
             ps.setInt(1, newThreshold);
             ps.setInt(2, productId);
 
-            return ps.executeUpdate() == 1;
+            boolean updated = ps.executeUpdate() == 1;
+            if (updated)
+                fireStockChanged(productId);
+            return updated;
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -348,7 +700,10 @@ public class ProductDAO extends AbstractDAO<Product> {
             ps.setDouble(1, addKg);
             ps.setInt(2, productId);
 
-            return ps.executeUpdate() == 1;
+            boolean updated = ps.executeUpdate() == 1;
+            if (updated)
+                fireStockChanged(productId);
+            return updated;
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -356,6 +711,43 @@ public class ProductDAO extends AbstractDAO<Product> {
         }
     }
 
+    /**
+     * Restock many products in one batch: product id -> kg to add.
+     * Non-positive amounts are skipped.
+     *
+     * @return rows updated, or -1 on failure
+     */
+    public static int addStock(Map<Integer, Double> addKgById) {
+        String sql = "UPDATE Product SET stock = stock + ? WHERE product_id=?";
+        List<Integer> restocked = new ArrayList<>();
+
+        try (Connection con = DBUtil.getConnection();
+                PreparedStatement ps = con.prepareStatement(sql)) {
+
+            for (Map.Entry<Integer, Double> e : addKgById.entrySet()) {
+                if (e.getValue() == null || e.getValue() <= 0)
+                    continue;
+                ps.setDouble(1, e.getValue());
+                ps.setInt(2, e.getKey());
+                ps.addBatch();
+                restocked.add(e.getKey());
+            }
+            if (restocked.isEmpty())
+                return 0;
+
+            int updated = 0;
+            for (int r : ps.executeBatch()) {
+                updated += r == Statement.SUCCESS_NO_INFO ? 1 : Math.max(r, 0);
+            }
+            restocked.forEach(ProductDAO::fireStockChanged);
+            return updated;
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
     public static boolean decreaseStock(int productId, double decreaseKg) {
         if (decreaseKg <= 0)
             return false;
@@ -369,7 +761,10 @@ public class ProductDAO extends AbstractDAO<Product> {
             ps.setInt(2, productId);
             ps.setDouble(3, decreaseKg);
 
-            return ps.executeUpdate() == 1;
+            boolean updated = ps.executeUpdate() == 1;
+            if (updated)
+                fireStockChanged(productId);
+            return updated;
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -415,7 +810,13 @@ public class ProductDAO extends AbstractDAO<Product> {
             ps.setDouble(1, kg);
             ps.setInt(2, productId);
             ps.setDouble(3, kg);
-            return ps.executeUpdate() == 1;
+
+            // Listeners re-read the committed row later, so firing inside the
+            // caller's transaction is safe.
+            boolean updated = ps.executeUpdate() == 1;
+            if (updated)
+                fireStockChanged(productId);
+            return updated;
         }
     }
 
@@ -459,6 +860,66 @@ public class ProductDAO extends AbstractDAO<Product> {
         }
     }
 
+    /**
+     * Replace the images (both renditions) of many products in one
+     * transaction: product id -> renditions. Callers keep the map small (a
+     * few MB), since the driver holds the whole batch in memory.
+     *
+     * @return rows updated, or -1 on failure
+     */
+    public static int updateImages(Map<Integer, ImageTranscoder.Renditions> imagesById) {
+        if (imagesById.isEmpty())
+            return 0;
+
+        String sql = "UPDATE Product SET image=?, thumbnail=?, image_hash=?, thumbnail_hash=? WHERE product_id=?";
+
+        try (Connection con = DBUtil.getConnection()) {
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                for (Map.Entry<Integer, ImageTranscoder.Renditions> e : imagesById.entrySet()) {
+                    setBlob(ps, 1, e.getValue().image());
+                    setBlob(ps, 2, e.getValue().thumbnail());
+                    ps.setString(3, hashOf(e.getValue().image()));
+                    ps.setString(4, hashOf(e.getValue().thumbnail()));
+                    ps.setInt(5, e.getKey());
+                    ps.addBatch();
+                }
+                int updated = 0;
+                for (int r : ps.executeBatch()) {
+                    updated += r == Statement.SUCCESS_NO_INFO ? 1 : Math.max(r, 0);
+                }
+                con.commit();
+                return updated;
+            } catch (Exception e) {
+                con.rollback();
+                throw e;
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * IDs of products that have no image yet.
+     */
+    public static List<Integer> getProductIdsWithoutImage() {
+        List<Integer> ids = new ArrayList<>();
+        String sql = "SELECT product_id FROM Product WHERE image IS NULL";
+
+        try (Connection con = DBUtil.getConnection();
+                PreparedStatement ps = con.prepareStatement(sql);
+                ResultSet rs = ps.executeQuery()) {
+
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return ids;
+    }
+
     /**
      * Update product name.
      */
@@ -483,6 +944,6 @@ public class ProductDAO extends AbstractDAO<Product> {
      * Get product by ID.
      */
     public static Product getProductById(int productId) {
-        return INSTANCE.findById(productId);
+        return INSTANCE.findById(productId, Projection.SUMMARY);
     }
 }
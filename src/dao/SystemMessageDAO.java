@@ -104,11 +104,17 @@ public class SystemMessageDAO {
         }
     }
 
+    /**
+     * Create or refresh the open LOW_STOCK alert for a product.
+     * The unique open_key column (type + product while unread) turns this into an
+     * idempotent upsert, so repeated stock changes never produce duplicate alerts.
+     */
     public static void createLowStockAlert(int productId, String productName, double currentStock, int threshold) {
-        if (alertExistsForProduct(productId))
-            return;
-
-        String sql = "INSERT INTO SystemMessage (message_type, title, message, related_product_id) VALUES (?, ?, ?, ?)";
+        String sql = """
+                INSERT INTO SystemMessage (message_type, title, message, related_product_id)
+                VALUES (?, ?, ?, ?)
+                ON DUPLICATE KEY UPDATE message = VALUES(message)
+                """;
         try (Connection con = DBUtil.getConnection();
                 PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setString(1, "LOW_STOCK");
@@ -122,21 +128,6 @@ public class SystemMessageDAO {
         }
     }
 
-    private static boolean alertExistsForProduct(int productId) {
-        String sql = "SELECT COUNT(*) FROM SystemMessage WHERE related_product_id = ? AND is_read = FALSE AND message_type = 'LOW_STOCK'";
-        try (Connection con = DBUtil.getConnection();
-                PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setInt(1, productId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next())
-                    return rs.getInt(1) > 0;
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return false;
-    }
-
     public static void deleteMessage(int id) {
         String sql = "DELETE FROM SystemMessage WHERE id = ?";
         try (Connection con = DBUtil.getConnection();
@@ -148,10 +139,26 @@ public class SystemMessageDAO {
         }
     }
 
+    /**
+     * Upsert alerts for every product currently at or below its threshold in a
+     * single statement. Used to reconcile once at startup; never reads image data.
+     */
     public static void checkAndCreateLowStockAlerts() {
-        List<model.Product> lowStockProducts = ProductDAO.getLowStockProducts();
-        for (model.Product p : lowStockProducts) {
-            createLowStockAlert(p.getProductId(), p.getName(), p.getStock(), p.getThreshold());
+        String sql = """
+                INSERT INTO SystemMessage (message_type, title, message, related_product_id)
+                SELECT 'LOW_STOCK', 'Low Stock Alert!',
+                       CONCAT(name, ' stock has fallen to ', ROUND(stock, 1),
+                              ' kg (Threshold: ', threshold, ' kg)'),
+                       product_id
+                FROM Product
+                WHERE stock <= threshold
+                ON DUPLICATE KEY UPDATE message = VALUES(message)
+                """;
+        try (Connection con = DBUtil.getConnection();
+                PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.executeUpdate();
+        } catch (Exception e) {
+            e.printStackTrace();
         }
     }
 }
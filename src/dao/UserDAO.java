@@ -1,13 +1,19 @@
 package dao;
 
 import model.*;
+import util.BloomFilter;
 import util.DBUtil;
+import util.PasswordHasher;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLIntegrityConstraintViolationException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * DAO for User/Person operations.
@@ -19,6 +25,13 @@ public class UserDAO extends AbstractDAO<Person> {
 
     private static final UserDAO INSTANCE = new UserDAO();
 
+    // Profiles are read on every screen load; keep them briefly
+    private static final long PROFILE_TTL_MS = 30_000;
+    private static final Map<String, CachedProfile> PROFILE_CACHE = new ConcurrentHashMap<>();
+
+    private record CachedProfile(Person person, long expiresAt) {
+    }
+
     public static UserDAO getInstance() {
         return INSTANCE;
     }
@@ -42,27 +55,50 @@ public class UserDAO extends AbstractDAO<Person> {
         String address = rs.getString("address");
         String phone = rs.getString("phone");
 
-        System.out.println("  [mapResultSetToEntity] role='" + role + "', username='" + username + "'");
-
         Person person = null;
         if ("CUSTOMER".equalsIgnoreCase(role)) {
             person = new Customer(username, password, address, phone);
-            System.out.println("  [mapResultSetToEntity] Created Customer object");
         } else if ("CARRIER".equalsIgnoreCase(role)) {
             person = new Carrier(username, password, address, phone);
-            System.out.println("  [mapResultSetToEntity] Created Carrier object, getRole()='" + person.getRole() + "'");
         } else if ("OWNER".equalsIgnoreCase(role)) {
             person = new Owner(username, password);
-            System.out.println("  [mapResultSetToEntity] Created Owner object");
         } else {
-            System.out.println("  [mapResultSetToEntity] Unknown role '" + role + "', returning null");
+            System.err.println("Unknown role '" + role + "' for user " + username);
         }
         return person;
     }
 
     // ========== STATIC METHODS ==========
 
+    /**
+     * Profile by username. Served from a short-lived cache; writes through
+     * this DAO invalidate it.
+     */
     public static Person findByUsername(String username) {
+        if (username == null)
+            return null;
+
+        CachedProfile cached = PROFILE_CACHE.get(username);
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis())
+            return cached.person();
+
+        Person person = loadByUsername(username);
+        if (person != null)
+            cacheProfile(person);
+        return person;
+    }
+
+    public static void invalidateProfile(String username) {
+        if (username != null)
+            PROFILE_CACHE.remove(username);
+    }
+
+    private static void cacheProfile(Person person) {
+        PROFILE_CACHE.put(person.getUsername(),
+                new CachedProfile(person, System.currentTimeMillis() + PROFILE_TTL_MS));
+    }
+
+    private static Person loadByUsername(String username) {
         String sql = "SELECT * FROM UserInfo WHERE username = ?";
         try (Connection con = DBUtil.getConnection();
                 PreparedStatement ps = con.prepareStatement(sql)) {
@@ -79,52 +115,53 @@ public class UserDAO extends AbstractDAO<Person> {
         return null;
     }
 
+    /**
+     * Verify the password and return the user, or null. Runs the (slow)
+     * hash check on the calling thread - UI code should go through
+     * AuthService instead.
+     *
+     * Plaintext or under-cost passwords are rehashed after a successful
+     * check.
+     */
     public static Person authenticateAndGetPerson(String username, String password) {
-        String sql = "SELECT * FROM UserInfo WHERE username = ? AND password = ?";
+        Person person = loadByUsername(username);
+        if (person == null) {
+            PasswordHasher.verifyDummy(password);
+            return null;
+        }
+
+        String stored = person.getPassword();
+        if (!PasswordHasher.verify(password, stored))
+            return null;
+
+        if (PasswordHasher.needsRehash(stored)) {
+            String rehashed = PasswordHasher.hash(password);
+            if (updatePasswordHash(username, stored, rehashed))
+                person.setPassword(rehashed);
+        }
 
-        // DEBUG
-        System.out.println("=== LOGIN DEBUG ===");
-        System.out.println("Attempting login with:");
-        System.out.println("  Username: '" + username + "' (length: " + username.length() + ")");
-        System.out.println("  Password: '" + password + "' (length: " + password.length() + ")");
+        cacheProfile(person);
+        return person;
+    }
 
+    /**
+     * Replace the stored password only if it still equals {@code expected},
+     * so concurrent logins never overwrite a newer password.
+     */
+    private static boolean updatePasswordHash(String username, String expected, String hash) {
+        String sql = "UPDATE UserInfo SET password=? WHERE username=? AND password=?";
         try (Connection con = DBUtil.getConnection();
                 PreparedStatement ps = con.prepareStatement(sql)) {
 
-            ps.setString(1, username);
-            ps.setString(2, password);
-
-            System.out.println("  SQL: " + sql);
+            ps.setString(1, hash);
+            ps.setString(2, username);
+            ps.setString(3, expected);
+            return ps.executeUpdate() == 1;
 
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    System.out.println("  ✅ User found in database!");
-                    System.out.println("  Role: " + rs.getString("role"));
-                    return INSTANCE.mapResultSetToEntity(rs);
-                } else {
-                    System.out.println("  ❌ No user found with these credentials!");
-
-                    // Check if username exists at all
-                    String checkSql = "SELECT username, password, role FROM UserInfo WHERE username = ?";
-                    try (PreparedStatement checkPs = con.prepareStatement(checkSql)) {
-                        checkPs.setString(1, username);
-                        try (ResultSet checkRs = checkPs.executeQuery()) {
-                            if (checkRs.next()) {
-                                System.out.println("  Username exists but password mismatch:");
-                                System.out.println("    DB Password: '" + checkRs.getString("password") + "'");
-                                System.out.println("    Input Password: '" + password + "'");
-                            } else {
-                                System.out.println("  Username '" + username + "' does not exist in database");
-                            }
-                        }
-                    }
-                }
-            }
         } catch (Exception e) {
-            System.out.println("  ❌ ERROR: " + e.getMessage());
             e.printStackTrace();
+            return false;
         }
-        return null;
     }
 
     public static boolean updateProfile(String username, String address, String phone) {
@@ -145,35 +182,33 @@ public class UserDAO extends AbstractDAO<Person> {
             }
 
             ps.setString(3, username);
-            return ps.executeUpdate() == 1;
+            if (ps.executeUpdate() != 1)
+                return false;
+            UserDirectory.contactChanged(username,
+                    address == null || address.trim().isEmpty() ? null : address.trim(),
+                    phone == null || phone.trim().isEmpty() ? null : phone.trim());
+            return true;
 
         } catch (Exception e) {
             e.printStackTrace();
             return false;
+        } finally {
+            invalidateProfile(username);
         }
     }
 
     // ========== LOGIN/REGISTER ==========
 
     public static boolean authenticate(String username, String password) {
-        String sql = "SELECT COUNT(*) FROM UserInfo WHERE username=? AND password=?";
-        try (Connection con = DBUtil.getConnection();
-                PreparedStatement ps = con.prepareStatement(sql)) {
-
-            ps.setString(1, username);
-            ps.setString(2, password);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt(1) > 0;
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return false;
+        return authenticateAndGetPerson(username, password) != null;
     }
 
     public static boolean usernameExists(String username) {
+        if (username == null)
+            return false;
+        if (definitelyAbsent(username))
+            return false;
+
         String sql = "SELECT COUNT(*) FROM UserInfo WHERE username=?";
         try (Connection con = DBUtil.getConnection();
                 PreparedStatement ps = con.prepareStatement(sql)) {
@@ -216,11 +251,12 @@ public class UserDAO extends AbstractDAO<Person> {
 
     public static boolean registerCustomer(String username, String password, String address, String phone) {
         String sql = "INSERT INTO UserInfo(username, password, role, address, phone) VALUES(?,?,?,?,?)";
+        String hash = PasswordHasher.hash(password);
         try (Connection con = DBUtil.getConnection();
                 PreparedStatement ps = con.prepareStatement(sql)) {
 
             ps.setString(1, username);
-            ps.setString(2, password);
+            ps.setString(2, hash);
             ps.setString(3, "CUSTOMER");
 
             if (address == null) {
@@ -235,14 +271,151 @@ public class UserDAO extends AbstractDAO<Person> {
                 ps.setString(5, phone);
             }
 
-            return ps.executeUpdate() == 1;
+            if (ps.executeUpdate() != 1)
+                return false;
+            rememberMember(username);
+            UserDirectory.added(new Customer(username, hash, address, phone));
+            return true;
 
+        } catch (SQLIntegrityConstraintViolationException e) {
+            // Registered since the check (e.g. from another instance)
+            rememberMember(username);
+            return false;
         } catch (Exception e) {
             e.printStackTrace();
             return false;
         }
     }
 
+    // ========== MEMBERSHIP FILTER ==========
+    // Bloom filter over existing usernames: a miss means the name was free
+    // when this process last saw it, so usernameExists skips the query. That
+    // is only a hint - another instance may have registered the name since -
+    // and the UNIQUE constraint on username is what rejects duplicates. An
+    // insert that hits it adds the name, so the next check asks the DB.
+    // Phones have no such constraint and are always checked in the DB.
+    // Deleted users stay in the filter; that only costs a query.
+
+    private static final double FILTER_FPP = 0.01;
+    private static final long FILTER_MIN_CAPACITY = 10_000;
+
+    private static final class Membership {
+        final BloomFilter usernames;
+        // False once a name is seen that the key cannot represent exactly
+        volatile boolean exact = true;
+        volatile boolean ready = false;
+
+        Membership(long capacity) {
+            usernames = new BloomFilter(capacity, FILTER_FPP);
+        }
+
+        void add(String username) {
+            if (username == null)
+                return;
+            String key = membershipKey(username);
+            if (key == null)
+                exact = false;
+            else
+                usernames.add(key);
+        }
+    }
+
+    // Filter answering checks; null until the first load completes
+    private static volatile Membership membership;
+    // Filter being (re)built; receives new members as well
+    private static volatile Membership loading;
+    private static boolean loadRunning = false;
+
+    /**
+     * Build the filter from UserInfo in the background. Checks use the DB
+     * until this finishes. Called at startup and again when the filter
+     * outgrows its capacity.
+     */
+    public static synchronized void loadMembershipFilters() {
+        if (loadRunning)
+            return;
+        loadRunning = true;
+
+        Thread t = new Thread(UserDAO::buildMembership, "user-filter-loader");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private static void buildMembership() {
+        // Published before the scan starts, so members added during it are kept
+        Membership next = new Membership(Math.max(FILTER_MIN_CAPACITY, 2 * countUsers()));
+        loading = next;
+
+        String sql = "SELECT username FROM UserInfo";
+        try (Connection con = DBUtil.getConnection();
+                PreparedStatement ps = prepareStreaming(con, sql)) {
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    next.add(rs.getString(1));
+                }
+            }
+            next.ready = true;
+            membership = next;
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            synchronized (UserDAO.class) {
+                loading = null;
+                loadRunning = false;
+            }
+        }
+    }
+
+    private static long countUsers() {
+        try (Connection con = DBUtil.getConnection();
+                PreparedStatement ps = con.prepareStatement("SELECT COUNT(*) FROM UserInfo");
+                ResultSet rs = ps.executeQuery()) {
+            if (rs.next())
+                return rs.getLong(1);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    private static void rememberMember(String username) {
+        Membership current = membership;
+        Membership next = loading;
+        if (current != null)
+            current.add(username);
+        if (next != null)
+            next.add(username);
+
+        if (current != null && current.usernames.isOverCapacity())
+            loadMembershipFilters();
+    }
+
+    private static boolean definitelyAbsent(String username) {
+        Membership m = membership;
+        if (m == null || !m.ready)
+            return false;
+        String key = membershipKey(username);
+        if (key == null)
+            return false;
+        return m.exact && !m.usernames.mightContain(key);
+    }
+
+    /**
+     * Filter key: trimmed and lower-cased, so values the case-insensitive
+     * collation treats as equal share a key. Non-ASCII values return null;
+     * the collation's accent folding is not reproduced, so they always go
+     * to the DB.
+     */
+    private static String membershipKey(String value) {
+        String key = value.trim().toLowerCase(Locale.ROOT);
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) > 0x7f)
+                return null;
+        }
+        return key;
+    }
+
     // Backward compatibility
     public static Person getUserInfo(String username) {
         return findByUsername(username);
@@ -254,28 +427,19 @@ public class UserDAO extends AbstractDAO<Person> {
 
     // ========== CARRIER OPERATIONS ==========
 
-    // Get all carriers (for owner view).
+    // Get all carriers (for owner view), from the user directory.
     public static List<Carrier> getAllCarriers() {
         List<Carrier> list = new ArrayList<>();
-        String sql = "SELECT * FROM UserInfo WHERE role='CARRIER'";
-
-        try (Connection con = DBUtil.getConnection();
-                PreparedStatement ps = con.prepareStatement(sql);
-                ResultSet rs = ps.executeQuery()) {
-
-            while (rs.next()) {
-                list.add(new Carrier(
-                        rs.getString("username"),
-                        rs.getString("password"),
-                        rs.getString("address"),
-                        rs.getString("phone")));
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+        for (Person p : UserDirectory.getByRole(UserDirectory.CARRIER)) {
+            list.add((Carrier) p);
         }
         return list;
     }
 
+    public static int getCarrierCount() {
+        return UserDirectory.count(UserDirectory.CARRIER);
+    }
+
     // Employ (add) a new carrier.
     public static boolean employCarrier(String username, String password, String address, String phone) {
         if (usernameExists(username)) {
@@ -284,11 +448,12 @@ public class UserDAO extends AbstractDAO<Person> {
         }
 
         String sql = "INSERT INTO UserInfo(username,password,role,address,phone) VALUES(?,?,?,?,?)";
+        String hash = PasswordHasher.hash(password);
         try (Connection con = DBUtil.getConnection();
                 PreparedStatement ps = con.prepareStatement(sql)) {
 
             ps.setString(1, username);
-            ps.setString(2, password);
+            ps.setString(2, hash);
             ps.setString(3, "CARRIER");
 
             if (address == null) {
@@ -303,8 +468,15 @@ public class UserDAO extends AbstractDAO<Person> {
                 ps.setString(5, phone);
             }
 
-            return ps.executeUpdate() == 1;
+            if (ps.executeUpdate() != 1)
+                return false;
+            rememberMember(username);
+            UserDirectory.added(new Carrier(username, hash, address, phone));
+            return true;
 
+        } catch (SQLIntegrityConstraintViolationException e) {
+            rememberMember(username);
+            return false;
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -331,38 +503,67 @@ public class UserDAO extends AbstractDAO<Person> {
         }
 
         // Delete carrier
-        String sql = "DELETE FROM UserInfo WHERE username=? AND role='CARRIER'";
+        String sql = "DELETE FROM UserInfo WHERE UPPER(role)='CARRIER' AND username=?";
         try (Connection con = DBUtil.getConnection();
                 PreparedStatement ps = con.prepareStatement(sql)) {
 
             ps.setString(1, username);
-            return ps.executeUpdate() == 1;
+            if (ps.executeUpdate() != 1)
+                return false;
+            UserDirectory.removed(username);
+            return true;
 
         } catch (Exception e) {
             e.printStackTrace();
             return false;
+        } finally {
+            invalidateProfile(username);
         }
     }
 
-    // Get all customers (for owner view).
-    public static List<Customer> getAllCustomers() {
-        List<Customer> list = new ArrayList<>();
-        String sql = "SELECT * FROM UserInfo WHERE role='CUSTOMER'";
+    /**
+     * Get user IDs of customers in a loyalty tier (customers without a loyalty
+     * record count as BRONZE). Pass null to get every customer.
+     */
+    public static List<Integer> getCustomerIdsByTier(CustomerLoyalty.Tier tier) {
+        List<Integer> ids = new ArrayList<>();
+        String sql = """
+                SELECT u.id
+                FROM UserInfo u
+                LEFT JOIN CustomerLoyalty cl ON cl.username = u.username
+                WHERE UPPER(u.role) = 'CUSTOMER'
+                  AND (? IS NULL OR COALESCE(cl.tier, 'BRONZE') = ?)
+                ORDER BY u.id
+                """;
 
         try (Connection con = DBUtil.getConnection();
-                PreparedStatement ps = con.prepareStatement(sql);
-                ResultSet rs = ps.executeQuery()) {
+                PreparedStatement ps = con.prepareStatement(sql)) {
+
+            String tierName = tier != null ? tier.name() : null;
+            ps.setString(1, tierName);
+            ps.setString(2, tierName);
 
-            while (rs.next()) {
-                list.add(new Customer(
-                        rs.getString("username"),
-                        rs.getString("password"),
-                        rs.getString("address"),
-                        rs.getString("phone")));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
             }
         } catch (Exception e) {
             e.printStackTrace();
         }
+        return ids;
+    }
+
+    // Get all customers (for owner view), from the user directory.
+    public static List<Customer> getAllCustomers() {
+        List<Customer> list = new ArrayList<>();
+        for (Person p : UserDirectory.getByRole(UserDirectory.CUSTOMER)) {
+            list.add((Customer) p);
+        }
         return list;
     }
+
+    public static int getCustomerCount() {
+        return UserDirectory.count(UserDirectory.CUSTOMER);
+    }
 }
@@ -0,0 +1,133 @@
+package dao;
+
+import model.Carrier;
+import model.Customer;
+import model.Owner;
+import model.Person;
+import util.DBUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-memory directory of users, partitioned by role.
+ *
+ * Loaded with one scan of UserInfo on first use and kept current by
+ * UserDAO's writes (register, employ, fire, profile update), so listings
+ * and counts between loads never scan the table. Writes made by other
+ * instances are not seen that way, so the directory is loaded again once
+ * it is MAX_AGE_MS old, and on invalidate() (the owner's refresh).
+ * Roles are normalized to upper case, whatever case the row stores.
+ */
+public class UserDirectory {
+
+    public static final String CUSTOMER = "CUSTOMER";
+    public static final String CARRIER = "CARRIER";
+    public static final String OWNER = "OWNER";
+
+    static final long MAX_AGE_MS = 30_000;
+
+    // role -> (username -> person), in load/insert order; null until loaded
+    private static Map<String, LinkedHashMap<String, Person>> byRole;
+    private static long loadedAt;
+
+    public static String normalizeRole(String role) {
+        return role == null ? null : role.trim().toUpperCase(Locale.ROOT);
+    }
+
+    public static synchronized List<Person> getByRole(String role) {
+        LinkedHashMap<String, Person> users = partitions().get(normalizeRole(role));
+        return users == null ? new ArrayList<>() : new ArrayList<>(users.values());
+    }
+
+    public static synchronized int count(String role) {
+        LinkedHashMap<String, Person> users = partitions().get(normalizeRole(role));
+        return users == null ? 0 : users.size();
+    }
+
+    /**
+     * Drop the directory; the next read loads it again.
+     */
+    public static synchronized void invalidate() {
+        byRole = null;
+    }
+
+    // ========== UPDATES FROM UserDAO ==========
+
+    static synchronized void added(Person person) {
+        if (byRole == null || person == null)
+            return;
+        byRole.computeIfAbsent(normalizeRole(person.getRole()), r -> new LinkedHashMap<>())
+                .put(person.getUsername(), person);
+    }
+
+    static synchronized void removed(String username) {
+        if (byRole == null)
+            return;
+        for (LinkedHashMap<String, Person> users : byRole.values()) {
+            users.remove(username);
+        }
+    }
+
+    static synchronized void contactChanged(String username, String address, String phone) {
+        if (byRole == null)
+            return;
+        for (LinkedHashMap<String, Person> users : byRole.values()) {
+            Person old = users.get(username);
+            if (old != null) {
+                // Replace rather than mutate: callers may still hold the old object
+                users.put(username, withContact(old, address, phone));
+                return;
+            }
+        }
+    }
+
+    private static Map<String, LinkedHashMap<String, Person>> partitions() {
+        if (byRole != null && System.currentTimeMillis() - loadedAt >= MAX_AGE_MS)
+            byRole = null;
+        if (byRole == null) {
+            byRole = load();
+            loadedAt = System.currentTimeMillis();
+        }
+        return byRole != null ? byRole : Map.of();
+    }
+
+    private static Map<String, LinkedHashMap<String, Person>> load() {
+        Map<String, LinkedHashMap<String, Person>> result = new HashMap<>();
+        String sql = "SELECT * FROM UserInfo ORDER BY id";
+
+        try (Connection con = DBUtil.getConnection();
+                PreparedStatement ps = AbstractDAO.prepareStreaming(con, sql);
+                ResultSet rs = ps.executeQuery()) {
+
+            while (rs.next()) {
+                Person person = UserDAO.getInstance().mapResultSetToEntity(rs);
+                if (person != null) {
+                    result.computeIfAbsent(normalizeRole(person.getRole()), r -> new LinkedHashMap<>())
+                            .put(person.getUsername(), person);
+                }
+            }
+        } catch (Exception e) {
+            // Leave the directory unloaded so the next read retries
+            e.printStackTrace();
+            return null;
+        }
+        return result;
+    }
+
+    // Same shapes as UserDAO.mapResultSetToEntity
+    private static Person withContact(Person p, String address, String phone) {
+        if (p instanceof Customer)
+            return new Customer(p.getUsername(), p.getPassword(), address, phone);
+        if (p instanceof Carrier)
+            return new Carrier(p.getUsername(), p.getPassword(), address, phone);
+        return new Owner(p.getUsername(), p.getPassword());
+    }
+}
@@ -1,5 +1,7 @@
 package model;
 
+import java.util.function.Supplier;
+
 /**
  * Invoice entity for order invoices.
  * 
@@ -13,6 +15,17 @@ public class Invoice extends Entity {
     private String invoiceContent; // CLOB
     private String transactionLog; // CLOB
     private java.sql.Timestamp createdAt;
+    private String orderStatus; // status the invoice was rendered for
+
+    // Set when the heavy columns were not selected; read on first access
+    private Supplier<byte[]> invoicePdfLoader;
+    private Supplier<String> invoiceContentLoader;
+    private Supplier<String> transactionLogLoader;
+
+    // Archived parts (InvoiceBlob keys); the columns above are then null
+    private String pdfHash;
+    private String contentHash;
+    private String logHash;
 
     public Invoice() {
         super();
@@ -37,27 +50,57 @@ public class Invoice extends Entity {
     }
 
     public byte[] getInvoicePdf() {
+        if (invoicePdf == null && invoicePdfLoader != null) {
+            invoicePdf = invoicePdfLoader.get();
+            if (invoicePdf != null)
+                invoicePdfLoader = null;
+        }
         return invoicePdf;
     }
 
     public void setInvoicePdf(byte[] invoicePdf) {
         this.invoicePdf = invoicePdf;
+        this.invoicePdfLoader = null;
+    }
+
+    public void setInvoicePdfLoader(Supplier<byte[]> invoicePdfLoader) {
+        this.invoicePdfLoader = invoicePdfLoader;
     }
 
     public String getInvoiceContent() {
+        if (invoiceContent == null && invoiceContentLoader != null) {
+            invoiceContent = invoiceContentLoader.get();
+            if (invoiceContent != null)
+                invoiceContentLoader = null;
+        }
         return invoiceContent;
     }
 
     public void setInvoiceContent(String invoiceContent) {
         this.invoiceContent = invoiceContent;
+        this.invoiceContentLoader = null;
+    }
+
+    public void setInvoiceContentLoader(Supplier<String> invoiceContentLoader) {
+        this.invoiceContentLoader = invoiceContentLoader;
     }
 
     public String getTransactionLog() {
+        if (transactionLog == null && transactionLogLoader != null) {
+            transactionLog = transactionLogLoader.get();
+            if (transactionLog != null)
+                transactionLogLoader = null;
+        }
         return transactionLog;
     }
 
     public void setTransactionLog(String transactionLog) {
         this.transactionLog = transactionLog;
+        this.transactionLogLoader = null;
+    }
+
+    public void setTransactionLogLoader(Supplier<String> transactionLogLoader) {
+        this.transactionLogLoader = transactionLogLoader;
     }
 
     public java.sql.Timestamp getCreatedAt() {
@@ -68,6 +111,38 @@ public class Invoice extends Entity {
         this.createdAt = createdAt;
     }
 
+    public String getOrderStatus() {
+        return orderStatus;
+    }
+
+    public void setOrderStatus(String orderStatus) {
+        this.orderStatus = orderStatus;
+    }
+
+    public String getPdfHash() {
+        return pdfHash;
+    }
+
+    public void setPdfHash(String pdfHash) {
+        this.pdfHash = pdfHash;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getLogHash() {
+        return logHash;
+    }
+
+    public void setLogHash(String logHash) {
+        this.logHash = logHash;
+    }
+
     @Override
     public String getDisplayName() {
         return "Invoice #" + getId() + " for Order #" + orderId;
@@ -1,5 +1,7 @@
 package model;
 
+import java.util.function.Supplier;
+
 /**
  * Product entity representing items sold in the store.
  * 
@@ -16,6 +18,10 @@ public class Product extends Entity {
     private String type;
     private int threshold;
     private byte[] image;
+    private Supplier<byte[]> imageLoader; // set when the image was not selected
+    private byte[] thumbnail; // small rendition for product cards
+    private Supplier<byte[]> thumbnailLoader;
+    private String thumbnailHash; // ImageCache key of the thumbnail
     private double discountPercent;
 
     // Constructors
@@ -100,11 +106,68 @@ public class Product extends Entity {
     }
 
     public byte[] getImage() {
+        if (image == null && imageLoader != null) {
+            image = imageLoader.get();
+            if (image != null)
+                imageLoader = null; // keep the loader after a failed read so it can retry
+        }
         return image;
     }
 
     public void setImage(byte[] image) {
         this.image = image;
+        this.imageLoader = null;
+    }
+
+    /**
+     * Source of the image for products loaded without it; read on the
+     * first getImage().
+     */
+    public void setImageLoader(Supplier<byte[]> imageLoader) {
+        this.imageLoader = imageLoader;
+    }
+
+    public byte[] getThumbnail() {
+        if (thumbnail == null && thumbnailLoader != null) {
+            thumbnail = thumbnailLoader.get();
+            if (thumbnail != null)
+                thumbnailLoader = null;
+        }
+        return thumbnail;
+    }
+
+    public void setThumbnail(byte[] thumbnail) {
+        this.thumbnail = thumbnail;
+        this.thumbnailLoader = null;
+    }
+
+    /**
+     * Source of the thumbnail for products loaded without it; read on the
+     * first getThumbnail().
+     */
+    public void setThumbnailLoader(Supplier<byte[]> thumbnailLoader) {
+        this.thumbnailLoader = thumbnailLoader;
+    }
+
+    /**
+     * SHA-256 of the thumbnail as stored in Product.thumbnail_hash, or null
+     * if there is none or it was not selected.
+     */
+    public String getThumbnailHash() {
+        return thumbnailHash;
+    }
+
+    public void setThumbnailHash(String thumbnailHash) {
+        this.thumbnailHash = thumbnailHash;
+    }
+
+    /**
+     * Image for product cards: the thumbnail, or the full image for
+     * products stored before thumbnails existed.
+     */
+    public byte[] getCardImage() {
+        byte[] thumb = getThumbnail();
+        return thumb != null ? thumb : getImage();
     }
 
     public double getDiscountPercent() {
@@ -119,6 +182,11 @@ public class Product extends Entity {
         return price;
     }
 
+    /**
+     * Price per kg with the product discount and the 2x low-stock rule.
+     * Screens and services use PricingEngine.price, which starts from the
+     * same two rules and adds any configured ones.
+     */
     public double getEffectivePrice() {
         double discountedPrice = price;
         if (discountPercent > 0) {
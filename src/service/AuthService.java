@@ -0,0 +1,61 @@
+package service;
+
+import dao.UserDAO;
+import model.Person;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Login off the FX thread.
+ *
+ * Password hashes are deliberately slow, so verification runs on a small
+ * fixed pool (one worker per core) with a short bounded queue. A burst of
+ * logins is served at a steady rate; once the queue is full, further
+ * attempts fail at once with BusyException instead of waiting behind it,
+ * which keeps the wait of accepted logins bounded.
+ */
+public class AuthService {
+
+    private static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static final int QUEUE_PER_THREAD = 8;
+
+    private static final AtomicInteger THREAD_NO = new AtomicInteger();
+
+    private static final ThreadPoolExecutor POOL = new ThreadPoolExecutor(THREADS, THREADS, 0, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(THREADS * QUEUE_PER_THREAD),
+            r -> {
+                Thread t = new Thread(r, "auth-verify-" + THREAD_NO.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+
+    /**
+     * Thrown (through the future) when too many logins are already queued.
+     */
+    public static class BusyException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public BusyException() {
+            super("Too many login attempts in progress");
+        }
+    }
+
+    /**
+     * Verify the credentials on the auth pool.
+     *
+     * @return future completing with the user, or null for wrong credentials
+     */
+    public static CompletableFuture<Person> login(String username, String password) {
+        try {
+            return CompletableFuture.supplyAsync(() -> UserDAO.authenticateAndGetPerson(username, password), POOL);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new BusyException());
+        }
+    }
+}
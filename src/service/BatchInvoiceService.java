@@ -0,0 +1,198 @@
+package service;
+
+import dao.InvoiceDAO;
+import dao.OrderDAO;
+import model.OrderDetail;
+import util.Workers;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Batch PDF invoice runs (e.g. end of month).
+ *
+ * Orders are rendered on a bounded worker pool - one thread per core by
+ * default - with a short work queue, so a run over tens of thousands of
+ * orders never holds more than a handful of orders in memory. Each worker
+ * reuses its own fonts via PdfInvoiceService, and every invoice is streamed
+ * straight to its file or stored through InvoiceDAO as soon as it is done.
+ */
+public class BatchInvoiceService {
+
+    /**
+     * Receives progress after every finished order (from worker threads).
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(int done, int total);
+    }
+
+    /**
+     * Outcome of a batch run.
+     */
+    public static class BatchResult {
+        private int generated;
+        private int skipped;
+        private List<Integer> failedOrderIds = new ArrayList<>();
+
+        public int getGenerated() {
+            return generated;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+
+        public List<Integer> getFailedOrderIds() {
+            return failedOrderIds;
+        }
+    }
+
+    @FunctionalInterface
+    private interface OrderTask {
+        /**
+         * @return false if the order was skipped
+         */
+        boolean run(OrderDetail order) throws Exception;
+    }
+
+    /**
+     * Write invoice-<orderId>.pdf files for all orders created in [from, to).
+     */
+    public static BatchResult generateToDirectory(Timestamp from, Timestamp to, Path dir,
+            int threads, ProgressListener listener) throws IOException {
+        return generateToDirectory(OrderDAO.getOrderIdsBetween(from, to), dir, threads, listener);
+    }
+
+    /**
+     * Write invoice-<orderId>.pdf files for the given orders.
+     * Existing files are replaced; a failed order never leaves a partial file.
+     */
+    public static BatchResult generateToDirectory(List<Integer> orderIds, Path dir,
+            int threads, ProgressListener listener) throws IOException {
+        Files.createDirectories(dir);
+
+        return run(orderIds, threads, listener, order -> {
+            Path target = dir.resolve("invoice-" + order.getOrderId() + ".pdf");
+            Path part = dir.resolve("invoice-" + order.getOrderId() + ".pdf.part");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(part))) {
+                PdfInvoiceService.writePdfInvoice(order, out);
+            } catch (Exception e) {
+                Files.deleteIfExists(part);
+                throw e;
+            }
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        });
+    }
+
+    /**
+     * Store PDF invoices for all orders created in [from, to) that have none yet.
+     */
+    public static BatchResult generateToDatabase(Timestamp from, Timestamp to,
+            int threads, ProgressListener listener) {
+        return generateToDatabase(OrderDAO.getOrderIdsBetween(from, to), threads, listener);
+    }
+
+    /**
+     * Store PDF invoices through InvoiceDAO for orders that have none yet.
+     * The text content is left empty; InvoiceService.getInvoiceText builds it
+     * on demand.
+     */
+    public static BatchResult generateToDatabase(List<Integer> orderIds, int threads,
+            ProgressListener listener) {
+        return run(orderIds, threads, listener, order -> {
+            if (InvoiceDAO.existsForOrder(order.getOrderId()))
+                return false;
+
+            // Render to a temp file and stream it in - heap use stays flat
+            Path pdfFile = Files.createTempFile("invoice-" + order.getOrderId() + "-", ".pdf");
+            try {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(pdfFile))) {
+                    PdfInvoiceService.writePdfInvoice(order, out);
+                }
+                if (InvoiceDAO.createInvoice(order.getOrderId(), order.getStatus(), pdfFile, null, null) == null)
+                    throw new IllegalStateException("Invoice not saved");
+            } finally {
+                InvoiceService.deleteQuietly(pdfFile);
+            }
+            return true;
+        });
+    }
+
+    private static BatchResult run(List<Integer> orderIds, int threads, ProgressListener listener,
+            OrderTask task) {
+        BatchResult result = new BatchResult();
+        if (orderIds == null || orderIds.isEmpty())
+            return result;
+        if (threads < 1)
+            threads = Workers.defaultThreads();
+
+        int total = orderIds.size();
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger generated = new AtomicInteger();
+        AtomicInteger skipped = new AtomicInteger();
+        List<Integer> failed = Collections.synchronizedList(new ArrayList<>());
+
+        AtomicInteger threadNo = new AtomicInteger();
+        // Bounded queue + caller-runs: the submitting thread helps out instead
+        // of queueing the whole run up front
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 4),
+                r -> {
+                    Thread t = new Thread(r, "invoice-worker-" + threadNo.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        try {
+            for (int orderId : orderIds) {
+                pool.execute(() -> {
+                    try {
+                        OrderDetail order = OrderDAO.getOrderDetail(orderId);
+                        if (order == null) {
+                            failed.add(orderId);
+                        } else if (task.run(order)) {
+                            generated.incrementAndGet();
+                        } else {
+                            skipped.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        System.err.println("Invoice for order #" + orderId + " failed: " + e.getMessage());
+                        failed.add(orderId);
+                    }
+
+                    if (listener != null)
+                        listener.onProgress(done.incrementAndGet(), total);
+                });
+            }
+        } finally {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            } catch (InterruptedException e) {
+                pool.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        result.generated = generated.get();
+        result.skipped = skipped.get();
+        result.failedOrderIds = new ArrayList<>(failed);
+        Collections.sort(result.failedOrderIds);
+        return result;
+    }
+}
@@ -0,0 +1,392 @@
+package service;
+
+import dao.AbstractDAO;
+import dao.ProductDAO;
+import model.Product;
+import util.ImageTranscoder;
+import util.ImageUtil;
+import util.ValidationUtil;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bulk catalog import: new products, price changes and restocks from one CSV.
+ *
+ * The first line is a header naming the columns, in any order:
+ * name, type (required), price, stock, threshold, discount (optional).
+ * A row for a product that already exists (same name and type) updates the
+ * price, threshold and discount it gives and adds {@code stock} kg; a row
+ * for a new product adds it with {@code stock} as its initial stock, and
+ * then price is required. Fields may be quoted; quoted fields cannot span
+ * lines.
+ *
+ * The file is streamed in chunks of AbstractDAO.BATCH_SIZE rows. Each chunk
+ * is validated in parallel with ValidationUtil and applied with a few
+ * batched writes (addProducts, updatePricing, addStock), so memory stays
+ * flat and several hundred rows take a handful of round trips. A dry run
+ * validates and classifies every row but writes nothing.
+ */
+public class CatalogImportService {
+
+    private static final int DEFAULT_THRESHOLD = 5;
+    private static final int MAX_ERRORS_IN_SUMMARY = 20;
+
+    /**
+     * Outcome of an import or dry run.
+     */
+    public static class Report {
+        private final boolean dryRun;
+        private int rows;
+        private int added;
+        private int repriced;
+        private int restocked;
+        private double restockedKg;
+        private final List<String> errors = new ArrayList<>();
+
+        Report(boolean dryRun) {
+            this.dryRun = dryRun;
+        }
+
+        public boolean isDryRun() {
+            return dryRun;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public int getAdded() {
+            return added;
+        }
+
+        public int getRepriced() {
+            return repriced;
+        }
+
+        public int getRestocked() {
+            return restocked;
+        }
+
+        public double getRestockedKg() {
+            return restockedKg;
+        }
+
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        public String summary() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(dryRun ? "Dry run: " : "Imported: ").append(rows).append(" rows\n");
+            sb.append(dryRun ? "  would add " : "  added ").append(added).append(" products\n");
+            sb.append(dryRun ? "  would update " : "  updated ").append(repriced)
+                    .append(" prices/thresholds/discounts\n");
+            sb.append(dryRun ? "  would restock " : "  restocked ").append(restocked)
+                    .append(String.format(" products (+%.2f kg)%n", restockedKg));
+            sb.append("  ").append(errors.size()).append(" rejected");
+            for (int i = 0; i < errors.size() && i < MAX_ERRORS_IN_SUMMARY; i++) {
+                sb.append("\n    ").append(errors.get(i));
+            }
+            if (errors.size() > MAX_ERRORS_IN_SUMMARY) {
+                sb.append("\n    ... ").append(errors.size() - MAX_ERRORS_IN_SUMMARY).append(" more");
+            }
+            return sb.toString();
+        }
+    }
+
+    // One parsed CSV line; error != null if it failed validation
+    private record Row(int line, String name, String type, Double price, Double stock, Integer threshold,
+            Double discount, String error) {
+
+        static Row rejected(int line, String error) {
+            return new Row(line, null, null, null, null, null, null, error);
+        }
+
+        String key() {
+            return productKey(name, type);
+        }
+    }
+
+    // A raw line with its 1-based line number
+    private record Line(int number, String text) {
+    }
+
+    // Column positions from the header; -1 if absent
+    private record Columns(int name, int type, int price, int stock, int threshold, int discount) {
+    }
+
+    public static Report importCsv(Path csv, boolean dryRun) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            return importCsv(in, dryRun);
+        }
+    }
+
+    public static Report importCsv(Reader reader, boolean dryRun) throws IOException {
+        Report report = new Report(dryRun);
+        BufferedReader in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+
+        String header = in.readLine();
+        int lineNo = 1;
+        while (header != null && header.isBlank()) {
+            header = in.readLine();
+            lineNo++;
+        }
+        if (header == null) {
+            report.errors.add("empty file");
+            return report;
+        }
+        Columns columns = parseHeader(header);
+        if (columns == null) {
+            report.errors.add("line " + lineNo + ": header must name the 'name' and 'type' columns");
+            return report;
+        }
+
+        Map<String, Product> existing = new HashMap<>();
+        for (Product p : ProductDAO.getAllProducts()) {
+            existing.put(productKey(p.getName(), p.getType()), p);
+        }
+        Set<String> addedKeys = new HashSet<>();
+        Map<Integer, Double> pendingKg = new HashMap<>();
+
+        List<Line> chunk = new ArrayList<>(AbstractDAO.BATCH_SIZE);
+        String text;
+        while ((text = in.readLine()) != null) {
+            lineNo++;
+            if (text.isBlank())
+                continue;
+            chunk.add(new Line(lineNo, text));
+            if (chunk.size() == AbstractDAO.BATCH_SIZE) {
+                processChunk(chunk, columns, existing, addedKeys, pendingKg, report);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty())
+            processChunk(chunk, columns, existing, addedKeys, pendingKg, report);
+        return report;
+    }
+
+    private static void processChunk(List<Line> lines, Columns columns, Map<String, Product> existing,
+            Set<String> addedKeys, Map<Integer, Double> pendingKg, Report report) {
+
+        // Validation only reads its own line: run it in parallel, keep order
+        List<Row> rows = lines.parallelStream().map(l -> parseRow(l, columns)).toList();
+
+        List<Product> toAdd = new ArrayList<>();
+        Map<Integer, Product> toReprice = new LinkedHashMap<>();
+        Map<Integer, Double> toRestock = new LinkedHashMap<>();
+
+        for (Row row : rows) {
+            report.rows++;
+            if (row.error() != null) {
+                report.errors.add("line " + row.line() + ": " + row.error());
+                continue;
+            }
+
+            Product current = existing.get(row.key());
+            if (current == null) {
+                if (!addedKeys.add(row.key())) {
+                    report.errors.add("line " + row.line() + ": duplicate new product " + row.name());
+                    continue;
+                }
+                if (row.price() == null) {
+                    addedKeys.remove(row.key());
+                    report.errors.add("line " + row.line() + ": price is required for new product " + row.name());
+                    continue;
+                }
+                Product p = new Product(0, row.name(), row.price(),
+                        row.stock() != null ? row.stock() : 0,
+                        row.type(),
+                        row.threshold() != null ? row.threshold() : DEFAULT_THRESHOLD);
+                if (row.discount() != null)
+                    p.setDiscountPercent(row.discount());
+                toAdd.add(p);
+                continue;
+            }
+
+            if (row.stock() != null && row.stock() > 0) {
+                int id = current.getProductId();
+                double total = pendingKg.getOrDefault(id, 0.0) + row.stock();
+                if (!ValidationUtil.isValidStock(current.getStock() + total)) {
+                    report.errors.add(String.format("line %d: restock would take %s over %.0f kg",
+                            row.line(), current.getName(), ValidationUtil.MAX_STOCK));
+                    continue;
+                }
+                pendingKg.put(id, total);
+                toRestock.merge(id, row.stock(), Double::sum);
+            }
+
+            // Edit the snapshot itself, so later rows and chunks build on it
+            if (row.price() != null || row.threshold() != null || row.discount() != null) {
+                if (row.price() != null)
+                    current.setPrice(row.price());
+                if (row.threshold() != null)
+                    current.setThreshold(row.threshold());
+                if (row.discount() != null)
+                    current.setDiscountPercent(row.discount());
+                toReprice.put(current.getProductId(), current);
+            }
+        }
+
+        if (report.dryRun) {
+            report.added += toAdd.size();
+            report.repriced += toReprice.size();
+            report.restocked += toRestock.size();
+            report.restockedKg += toRestock.values().stream().mapToDouble(Double::doubleValue).sum();
+            return;
+        }
+        apply(toAdd, new ArrayList<>(toReprice.values()), toRestock, report);
+    }
+
+    private static void apply(List<Product> toAdd, List<Product> toReprice, Map<Integer, Double> toRestock,
+            Report report) {
+        if (!toAdd.isEmpty()) {
+            // Transcoding dominates here; spread it over the cores
+            toAdd.parallelStream().forEach(p -> {
+                ImageTranscoder.Renditions images = ImageTranscoder.transcode(ImageUtil.loadProductImage(p.getName()));
+                if (images != null) {
+                    p.setImage(images.image());
+                    p.setThumbnail(images.thumbnail());
+                }
+            });
+            if (ProductDAO.addProducts(toAdd).size() == toAdd.size()) {
+                report.added += toAdd.size();
+            } else {
+                report.errors.add("failed to add " + toAdd.size() + " products; none of them were saved");
+            }
+        }
+
+        if (!toReprice.isEmpty()) {
+            if (ProductDAO.updatePricing(toReprice) >= 0) {
+                report.repriced += toReprice.size();
+            } else {
+                report.errors.add("failed to update " + toReprice.size() + " prices");
+            }
+        }
+
+        if (!toRestock.isEmpty()) {
+            if (ProductDAO.addStock(toRestock) >= 0) {
+                report.restocked += toRestock.size();
+                report.restockedKg += toRestock.values().stream().mapToDouble(Double::doubleValue).sum();
+            } else {
+                report.errors.add("failed to restock " + toRestock.size() + " products");
+            }
+        }
+    }
+
+    // ========== PARSING ==========
+
+    private static Columns parseHeader(String header) {
+        List<String> names = splitCsv(header);
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            index.putIfAbsent(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!index.containsKey("name") || !index.containsKey("type"))
+            return null;
+        return new Columns(index.get("name"), index.get("type"),
+                index.getOrDefault("price", -1), index.getOrDefault("stock", -1),
+                index.getOrDefault("threshold", -1), index.getOrDefault("discount", -1));
+    }
+
+    private static Row parseRow(Line line, Columns columns) {
+        List<String> fields = splitCsv(line.text());
+
+        String name = field(fields, columns.name());
+        String type = field(fields, columns.type());
+        if (name == null)
+            return Row.rejected(line.number(), "name is missing");
+        if (type == null)
+            return Row.rejected(line.number(), "type is missing");
+        type = type.toLowerCase(Locale.ROOT);
+        if (!ValidationUtil.isValidProductName(name, type))
+            return Row.rejected(line.number(), ValidationUtil.getProductNameError(type) + " (" + name + ")");
+
+        Double price;
+        Double stock;
+        Integer threshold;
+        Double discount;
+        try {
+            price = parseDouble(field(fields, columns.price()));
+            stock = parseDouble(field(fields, columns.stock()));
+            String t = field(fields, columns.threshold());
+            threshold = t != null ? Integer.valueOf(t) : null;
+            discount = parseDouble(field(fields, columns.discount()));
+        } catch (NumberFormatException e) {
+            return Row.rejected(line.number(), "invalid number");
+        }
+
+        if (price != null && !ValidationUtil.isValidPrice(price))
+            return Row.rejected(line.number(), String.format("price must be between %.2f and %.0f TL",
+                    ValidationUtil.MIN_PRICE, ValidationUtil.MAX_PRICE));
+        if (stock != null && !ValidationUtil.isValidStock(stock))
+            return Row.rejected(line.number(), String.format("stock must be between %.0f and %.0f kg",
+                    ValidationUtil.MIN_STOCK, ValidationUtil.MAX_STOCK));
+        if (threshold != null && threshold < 1)
+            return Row.rejected(line.number(), "threshold must be at least 1");
+        if (discount != null && (discount < 0 || discount > 100))
+            return Row.rejected(line.number(), "discount must be 0-100%");
+
+        return new Row(line.number(), name, type, price, stock, threshold, discount, null);
+    }
+
+    // Trimmed field, or null if the column is absent or the field empty
+    private static String field(List<String> fields, int column) {
+        if (column < 0 || column >= fields.size())
+            return null;
+        String value = fields.get(column).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Double parseDouble(String value) {
+        return value != null ? Double.valueOf(value) : null;
+    }
+
+    // Comma separated, with "double ""quoted"" fields"
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String productKey(String name, String type) {
+        return name.trim().toLowerCase(Locale.ROOT) + "|" + (type == null ? "" : type.toLowerCase(Locale.ROOT));
+    }
+}
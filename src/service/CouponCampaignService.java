@@ -0,0 +1,135 @@
+package service;
+
+import dao.CouponDAO;
+import dao.UserDAO;
+import model.Coupon;
+import model.CustomerLoyalty;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk coupon campaigns: one personalized coupon per customer in a segment.
+ *
+ * Codes are generated without collisions by running a per-campaign sequence
+ * number through a bijective 40-bit scramble, so no existence check against
+ * the Coupon table is needed. Coupons are inserted and assigned in the same
+ * batched INSERT, one transaction per chunk.
+ */
+public class CouponCampaignService {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    // Crockford base32 (no I, L, O, U) - easy to read out loud at the till
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final long MASK_40 = (1L << 40) - 1;
+
+    // Start millis of the last campaign; tags are strictly increasing
+    private static final AtomicLong LAST_TAG_TIME = new AtomicLong();
+
+    /**
+     * Receives progress after every committed chunk.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(int issued, int total);
+    }
+
+    /**
+     * Issue one coupon to every customer in the tier (null = all customers).
+     *
+     * @param prefix   code prefix, e.g. "SPRING"
+     * @param template discount settings shared by all coupons
+     *                 (percent/amount, min order, validity, max uses)
+     * @param listener progress callback, may be null
+     * @return number of coupons issued
+     */
+    public static int issueCampaign(String prefix, Coupon template, CustomerLoyalty.Tier tier,
+            int chunkSize, ProgressListener listener) {
+        List<Integer> userIds = UserDAO.getCustomerIdsByTier(tier);
+        return issueToUsers(prefix, template, userIds, chunkSize, listener);
+    }
+
+    /**
+     * Issue one coupon to each of the given users.
+     */
+    public static int issueToUsers(String prefix, Coupon template, List<Integer> userIds,
+            int chunkSize, ProgressListener listener) {
+        if (userIds == null || userIds.isEmpty())
+            return 0;
+        if (chunkSize < 1)
+            chunkSize = DEFAULT_CHUNK_SIZE;
+        if (template.getMaxUses() < 1)
+            template.setMaxUses(1);
+        if (template.getValidFrom() == null)
+            template.setValidFrom(new Timestamp(System.currentTimeMillis()));
+
+        String campaignTag = campaignTag(prefix);
+        int total = userIds.size();
+        int issued = 0;
+
+        for (int start = 0; start < total; start += chunkSize) {
+            int end = Math.min(start + chunkSize, total);
+            String[] codes = new String[end - start];
+            int[] ids = new int[end - start];
+
+            for (int i = start; i < end; i++) {
+                codes[i - start] = campaignTag + encode(scramble(i));
+                ids[i - start] = userIds.get(i);
+            }
+
+            int inserted = CouponDAO.createAssignedCoupons(template, codes, ids);
+            if (inserted == 0) {
+                System.err.println("Coupon campaign stopped at " + issued + "/" + total);
+                break;
+            }
+
+            issued += inserted;
+            if (listener != null)
+                listener.onProgress(issued, total);
+        }
+
+        return issued;
+    }
+
+    /**
+     * Prefix plus the campaign start time in base36 millis, so two campaigns
+     * never share a code space. Campaigns started in the same millisecond get
+     * the next free one.
+     */
+    private static String campaignTag(String prefix) {
+        String p = prefix == null ? "" : prefix.trim().toUpperCase().replaceAll("[^A-Z0-9]", "");
+        if (p.length() > 12)
+            p = p.substring(0, 12);
+        long now = System.currentTimeMillis();
+        long tagTime = LAST_TAG_TIME.updateAndGet(last -> Math.max(now, last + 1));
+        String time = Long.toString(tagTime, 36).toUpperCase();
+        return (p.isEmpty() ? "" : p + "-") + time + "-";
+    }
+
+    /**
+     * Bijective mix of a 40-bit sequence number: distinct inputs always give
+     * distinct outputs, but consecutive customers don't get guessable codes.
+     */
+    private static long scramble(long seq) {
+        long x = seq & MASK_40;
+        x = (x * 0x9E3779B97L) & MASK_40; // odd multiplier - invertible mod 2^40
+        x ^= x >>> 19;
+        x = (x * 0x5DEECE66DL) & MASK_40;
+        x ^= x >>> 21;
+        return x;
+    }
+
+    /**
+     * Encode 40 bits as 8 base32 characters.
+     */
+    private static String encode(long value) {
+        char[] out = new char[8];
+        for (int i = 7; i >= 0; i--) {
+            out[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(out);
+    }
+}
@@ -0,0 +1,94 @@
+package service;
+
+import dao.CouponDAO;
+import model.Coupon;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coupon lookup cache and usage reservation.
+ *
+ * Active coupons are cached by code for a short TTL and dropped whenever
+ * CouponDAO reports a change (create, activate, deactivate, delete, assign).
+ * The cached copy is only used to validate the code while the customer is
+ * shopping; the usage cap itself is enforced at checkout by reserveUse(),
+ * which is a single conditional UPDATE in the database.
+ */
+public class CouponService {
+
+    private static final long TTL_MS = 60_000;
+
+    private static final Map<String, CachedCoupon> CACHE = new ConcurrentHashMap<>();
+
+    static {
+        CouponDAO.addCouponChangeListener(code -> {
+            if (code == null) {
+                CACHE.clear();
+            } else {
+                CACHE.remove(code);
+            }
+        });
+    }
+
+    private static class CachedCoupon {
+        private final Coupon coupon;
+        private final long loadedAt;
+
+        CachedCoupon(Coupon coupon, long loadedAt) {
+            this.coupon = coupon;
+            this.loadedAt = loadedAt;
+        }
+
+        boolean isFresh() {
+            return System.currentTimeMillis() - loadedAt < TTL_MS;
+        }
+    }
+
+    /**
+     * Get coupon by code, from cache when possible.
+     *
+     * @return coupon or null if no coupon has this code
+     */
+    public static Coupon getCoupon(String code) {
+        if (code == null || code.trim().isEmpty())
+            return null;
+
+        String key = code.trim().toUpperCase();
+        CachedCoupon cached = CACHE.get(key);
+        if (cached != null && cached.isFresh())
+            return cached.coupon;
+
+        Coupon coupon = CouponDAO.getCouponByCode(key);
+        if (coupon != null && coupon.isActive()) {
+            CACHE.put(key, new CachedCoupon(coupon, System.currentTimeMillis()));
+        } else {
+            CACHE.remove(key);
+        }
+        return coupon;
+    }
+
+    /**
+     * Atomically take one use of the coupon.
+     *
+     * @return true if a use was reserved, false if the coupon is exhausted,
+     *         inactive or expired
+     */
+    public static boolean reserveUse(String code) {
+        String key = code.trim().toUpperCase();
+        boolean reserved = CouponDAO.useCoupon(key);
+
+        // used_count changed (or the cached copy was stale) - reload on next lookup
+        CACHE.remove(key);
+        return reserved;
+    }
+
+    /**
+     * Return a use taken by reserveUse() when the order could not be placed.
+     */
+    public static void releaseUse(String code) {
+        String key = code.trim().toUpperCase();
+        CouponDAO.releaseCoupon(key);
+        CACHE.remove(key);
+    }
+}
@@ -0,0 +1,144 @@
+package service;
+
+import dao.ProductDAO;
+import model.Product;
+import util.ImageTranscoder;
+import util.ImageUtil;
+import util.Workers;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * (Re-)seeds product images from the images_market folder.
+ *
+ * Files are found through ImageUtil's index, then read and transcoded
+ * (ImageTranscoder) on a pool of workers; the calling thread collects the
+ * renditions in product order and writes them with batched updates of about
+ * BATCH_BYTES each. Only a sliding window of images is in flight, so memory
+ * stays flat however many products there are.
+ */
+public class ImageIngestService {
+
+    private static final int WINDOW_PER_THREAD = 4;
+    private static final long BATCH_BYTES = 8L * 1024 * 1024;
+
+    /**
+     * Counts of one ingestion run.
+     */
+    public static class Result {
+        private int loaded;
+        private int missing;
+        private int failed;
+
+        public int getLoaded() {
+            return loaded;
+        }
+
+        public int getMissing() {
+            return missing;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+    }
+
+    /**
+     * Load images for all products, or only for those without one.
+     */
+    public static Result ingestAll(boolean onlyMissing, int threads) {
+        List<Product> products = ProductDAO.getAllProducts();
+        if (onlyMissing) {
+            Set<Integer> missing = new HashSet<>(ProductDAO.getProductIdsWithoutImage());
+            products = products.stream().filter(p -> missing.contains(p.getProductId())).toList();
+        }
+        return ingest(products, threads);
+    }
+
+    public static Result ingest(List<Product> products, int threads) {
+        Result result = new Result();
+        if (products == null || products.isEmpty())
+            return result;
+        if (threads < 1)
+            threads = Workers.defaultThreads();
+
+        AtomicInteger threadNo = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "image-ingest-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            // Futures in product order; at most `window` images held at once
+            int window = threads * WINDOW_PER_THREAD;
+            ArrayDeque<Future<ImageTranscoder.Renditions>> inFlight = new ArrayDeque<>(window);
+            Map<Integer, ImageTranscoder.Renditions> batch = new LinkedHashMap<>();
+            long batchBytes = 0;
+            int next = 0;
+
+            for (int done = 0; done < products.size(); done++) {
+                while (next < products.size() && inFlight.size() < window) {
+                    String name = products.get(next++).getName();
+                    inFlight.add(pool.submit(() -> read(name)));
+                }
+
+                Product product = products.get(done);
+                ImageTranscoder.Renditions images;
+                try {
+                    images = inFlight.poll().get();
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                    result.failed++;
+                    continue;
+                }
+                if (images == null) {
+                    result.missing++;
+                    continue;
+                }
+
+                batch.put(product.getProductId(), images);
+                batchBytes += images.image().length
+                        + (images.thumbnail() != null ? images.thumbnail().length : 0);
+                if (batchBytes >= BATCH_BYTES) {
+                    flush(batch, result);
+                    batchBytes = 0;
+                }
+            }
+            flush(batch, result);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
+        }
+        return result;
+    }
+
+    // Renditions for a product, or null if the folder has none
+    private static ImageTranscoder.Renditions read(String productName) {
+        Path file = ImageUtil.findProductImage(productName);
+        return file != null ? ImageTranscoder.transcode(ImageUtil.readImage(file)) : null;
+    }
+
+    private static void flush(Map<Integer, ImageTranscoder.Renditions> batch, Result result) {
+        if (batch.isEmpty())
+            return;
+        if (ProductDAO.updateImages(batch) >= 0) {
+            result.loaded += batch.size();
+        } else {
+            result.failed += batch.size();
+        }
+        batch.clear();
+    }
+}
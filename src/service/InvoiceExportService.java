@@ -0,0 +1,215 @@
+package service;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.pdf.PdfCopy;
+import com.itextpdf.text.pdf.PdfReader;
+import dao.OrderDAO;
+import util.Workers;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Bulk invoice export into one file: a ZIP with one PDF per order, or a single
+ * merged PDF.
+ *
+ * Invoices are rendered in parallel but written strictly in the order of the
+ * given IDs. Only a sliding window of renders (a few per worker) is in flight,
+ * so memory stays flat for any number of invoices; the output is streamed to
+ * a .part file and moved into place when complete.
+ */
+public class InvoiceExportService {
+
+    private static final int WINDOW_PER_THREAD = 4;
+
+    /**
+     * Receives progress after every written invoice (on the exporting thread).
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(int done, int total);
+    }
+
+    /**
+     * Produces the PDF bytes of one invoice.
+     */
+    @FunctionalInterface
+    private interface InvoiceSource {
+        byte[] render(int orderId) throws Exception;
+    }
+
+    /**
+     * Consumes rendered invoices in order.
+     */
+    private interface Sink {
+        void add(int orderId, byte[] pdf) throws Exception;
+
+        void finish() throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface SinkFactory {
+        Sink open(OutputStream out) throws Exception;
+    }
+
+    /**
+     * Export all invoices for orders created in [from, to) as a ZIP.
+     */
+    public static int exportZip(Timestamp from, Timestamp to, Path zipFile, int threads,
+            ProgressListener listener) throws Exception {
+        return exportZip(OrderDAO.getOrderIdsBetween(from, to), zipFile, threads, listener);
+    }
+
+    /**
+     * Export the invoices of the given orders as a ZIP of invoice-<id>.pdf files.
+     *
+     * @return number of invoices written
+     */
+    public static int exportZip(List<Integer> orderIds, Path zipFile, int threads,
+            ProgressListener listener) throws Exception {
+        return export(orderIds, zipFile, threads, listener, InvoiceExportService::renderStoredOrNew,
+                InvoiceExportService::zipSink);
+    }
+
+    /**
+     * Export all invoices for orders created in [from, to) as one merged PDF.
+     */
+    public static int exportMergedPdf(Timestamp from, Timestamp to, Path pdfFile, int threads,
+            ProgressListener listener) throws Exception {
+        return exportMergedPdf(OrderDAO.getOrderIdsBetween(from, to), pdfFile, threads, listener);
+    }
+
+    /**
+     * Export the invoices of the given orders as one PDF, appended with PdfCopy.
+     *
+     * @return number of invoices written
+     */
+    public static int exportMergedPdf(List<Integer> orderIds, Path pdfFile, int threads,
+            ProgressListener listener) throws Exception {
+        return export(orderIds, pdfFile, threads, listener, InvoiceExportService::renderStoredOrNew,
+                InvoiceExportService::mergedPdfSink);
+    }
+
+    private static byte[] renderStoredOrNew(int orderId) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        PdfInvoiceService.writeStoredOrRendered(orderId, out);
+        return out.toByteArray();
+    }
+
+    private static int export(List<Integer> orderIds, Path target, int threads, ProgressListener listener,
+            InvoiceSource source, SinkFactory sinkFactory) throws Exception {
+        if (orderIds == null || orderIds.isEmpty())
+            return 0;
+        if (threads < 1)
+            threads = Workers.defaultThreads();
+
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        int total = orderIds.size();
+        int done = 0;
+
+        AtomicInteger threadNo = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "invoice-export-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(part))) {
+            Sink sink = sinkFactory.open(out);
+
+            // Futures in output order; at most `window` renders held at once
+            int window = threads * WINDOW_PER_THREAD;
+            ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<>(window);
+            int next = 0;
+
+            while (done < total) {
+                while (next < total && inFlight.size() < window) {
+                    int orderId = orderIds.get(next++);
+                    inFlight.add(pool.submit(() -> source.render(orderId)));
+                }
+
+                int orderId = orderIds.get(done);
+                byte[] pdf;
+                try {
+                    pdf = inFlight.poll().get();
+                } catch (ExecutionException e) {
+                    throw new IOException("Invoice for order #" + orderId + " failed", e.getCause());
+                }
+                sink.add(orderId, pdf);
+
+                done++;
+                if (listener != null)
+                    listener.onProgress(done, total);
+            }
+
+            sink.finish();
+        } catch (Exception e) {
+            Files.deleteIfExists(part);
+            throw e;
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+        return done;
+    }
+
+    private static Sink zipSink(OutputStream out) {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        return new Sink() {
+            @Override
+            public void add(int orderId, byte[] pdf) throws IOException {
+                zip.putNextEntry(new ZipEntry("invoice-" + orderId + ".pdf"));
+                zip.write(pdf);
+                zip.closeEntry();
+            }
+
+            @Override
+            public void finish() throws IOException {
+                zip.finish();
+            }
+        };
+    }
+
+    private static Sink mergedPdfSink(OutputStream out) throws Exception {
+        Document document = new Document();
+        PdfCopy copy = new PdfCopy(document, out);
+        copy.setCloseStream(false);
+        copy.setFullCompression();
+        document.open();
+
+        return new Sink() {
+            @Override
+            public void add(int orderId, byte[] pdf) throws Exception {
+                PdfReader reader = new PdfReader(pdf);
+                try {
+                    copy.addDocument(reader);
+                    // Pages are written out now; drop the reader's objects
+                    copy.freeReader(reader);
+                } finally {
+                    reader.close();
+                }
+            }
+
+            @Override
+            public void finish() {
+                document.close();
+            }
+        };
+    }
+}
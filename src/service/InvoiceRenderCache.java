@@ -0,0 +1,319 @@
+package service;
+
+import dao.OrderDAO;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache for rendered invoices (text and PDF).
+ *
+ * Entries are keyed by (order id, order status). An order passes through
+ * each status at most once (NEW, IN_PROGRESS, then DELIVERED or CANCELLED),
+ * so the status works as the order's version: a transition changes the key
+ * and old renders are never served. OrderDAO change events additionally drop
+ * an order's old entries right away. Within one status an invoice does not
+ * change (carrier and delivery date are set by the transitions), so other
+ * tills never need to invalidate an entry.
+ *
+ * Two tiers, both bounded by size and evicted least recently used first:
+ * memory for small renders, and a directory that survives restarts. Invoices
+ * hold customer names, addresses and phone numbers, so the directory lives
+ * in the user's home and is readable by its owner only.
+ *
+ * Renders are streamed: hits are copied to the caller's stream and misses
+ * are written to it, to the disk tier and (if small) to memory in one pass.
+ */
+public class InvoiceRenderCache {
+
+    public static final String TEXT = "txt";
+    public static final String PDF = "pdf";
+
+    private static final long MEMORY_LIMIT = 8L * 1024 * 1024;
+    private static final int MAX_MEMORY_ENTRY = 512 * 1024;
+    private static final long DISK_LIMIT = 128L * 1024 * 1024;
+
+    private static final Path DISK_DIR = Path.of(System.getProperty("greengrocer.invoices.cacheDir",
+            Path.of(System.getProperty("user.home"), ".greengrocer", "invoice-cache").toString()));
+
+    // Access-ordered: iteration starts at the least recently used entry
+    private static final LinkedHashMap<String, byte[]> MEMORY = new LinkedHashMap<>(64, 0.75f, true);
+    private static long memoryBytes = 0;
+
+    // Approximate; recounted on the first write and whenever pruning runs
+    private static long diskBytes = -1;
+
+    static {
+        OrderDAO.addOrderChangeListener(InvoiceRenderCache::invalidate);
+    }
+
+    /**
+     * Writes a fresh render of the invoice.
+     */
+    @FunctionalInterface
+    public interface Renderer {
+        void render(OutputStream out) throws Exception;
+    }
+
+    /**
+     * Cached render of the invoice, rendering and storing it on a miss.
+     */
+    public static byte[] get(int orderId, String status, String kind, Renderer renderer) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        write(orderId, status, kind, renderer, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Write the cached render of the invoice to {@code out}, rendering and
+     * storing it on a miss. On failure part of the invoice may already be
+     * written. The stream is not closed.
+     */
+    public static void write(int orderId, String status, String kind, Renderer renderer, OutputStream out)
+            throws Exception {
+        String key = key(orderId, status, kind);
+
+        byte[] cached = getFromMemory(key);
+        if (cached != null) {
+            out.write(cached);
+            return;
+        }
+
+        Path file = DISK_DIR.resolve(key);
+        if (Files.isRegularFile(file)) {
+            try {
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                if (Files.size(file) <= MAX_MEMORY_ENTRY) {
+                    byte[] data = Files.readAllBytes(file);
+                    putInMemory(key, data);
+                    out.write(data);
+                } else {
+                    Files.copy(file, out);
+                }
+                return;
+            } catch (IOException e) {
+                // Removed by pruning or another instance - render again
+            }
+        }
+
+        renderAndStore(key, renderer, out);
+    }
+
+    /**
+     * Drop every cached render of the order.
+     */
+    public static void invalidate(int orderId) {
+        String prefix = orderId + "-";
+
+        synchronized (MEMORY) {
+            Iterator<Map.Entry<String, byte[]>> it = MEMORY.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, byte[]> e = it.next();
+                if (e.getKey().startsWith(prefix)) {
+                    memoryBytes -= e.getValue().length;
+                    it.remove();
+                }
+            }
+        }
+
+        if (!Files.isDirectory(DISK_DIR))
+            return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(DISK_DIR, prefix + "*")) {
+            for (Path f : files) {
+                Files.deleteIfExists(f);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static String key(int orderId, String status, String kind) {
+        String version = status == null ? "UNKNOWN" : status.toUpperCase().replaceAll("[^A-Z_]", "");
+        return orderId + "-" + version + "." + kind;
+    }
+
+    private static byte[] getFromMemory(String key) {
+        synchronized (MEMORY) {
+            return MEMORY.get(key);
+        }
+    }
+
+    private static void putInMemory(String key, byte[] data) {
+        if (data.length > MAX_MEMORY_ENTRY)
+            return;
+
+        synchronized (MEMORY) {
+            byte[] old = MEMORY.put(key, data);
+            if (old != null)
+                memoryBytes -= old.length;
+            memoryBytes += data.length;
+
+            Iterator<byte[]> it = MEMORY.values().iterator();
+            while (memoryBytes > MEMORY_LIMIT && it.hasNext()) {
+                memoryBytes -= it.next().length;
+                it.remove();
+            }
+        }
+    }
+
+    private static void renderAndStore(String key, Renderer renderer, OutputStream out) throws Exception {
+        Path tmp = null;
+        OutputStream disk = null;
+        try {
+            createDiskDir();
+            tmp = Files.createTempFile(DISK_DIR, key, ".part");
+            disk = new BufferedOutputStream(Files.newOutputStream(tmp));
+        } catch (IOException e) {
+            // Disk tier is best effort
+            e.printStackTrace();
+        }
+
+        Tee tee = new Tee(out, disk);
+        try {
+            renderer.render(tee);
+            tee.flush();
+        } catch (Exception e) {
+            closeQuietly(disk);
+            InvoiceService.deleteQuietly(tmp);
+            throw e;
+        }
+
+        if (tee.memory != null)
+            putInMemory(key, tee.memory.toByteArray());
+
+        if (disk != null && !tee.diskFailed) {
+            try {
+                disk.close();
+                Files.move(tmp, DISK_DIR.resolve(key), StandardCopyOption.REPLACE_EXISTING);
+                trackDiskWrite(tee.size);
+                return;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        closeQuietly(disk);
+        InvoiceService.deleteQuietly(tmp);
+    }
+
+    private static void createDiskDir() throws IOException {
+        if (Files.isDirectory(DISK_DIR))
+            return;
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createDirectories(DISK_DIR,
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } else {
+            // Windows: the user's home is already private to them
+            Files.createDirectories(DISK_DIR);
+        }
+    }
+
+    private static void closeQuietly(OutputStream out) {
+        if (out == null)
+            return;
+        try {
+            out.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Writes to the caller's stream and the disk tier at once, and keeps a
+     * copy in memory until the render grows past MAX_MEMORY_ENTRY. A failing
+     * disk write only drops the disk copy.
+     */
+    private static final class Tee extends OutputStream {
+        private final OutputStream out;
+        private final OutputStream disk;
+        private ByteArrayOutputStream memory = new ByteArrayOutputStream(16 * 1024);
+        private boolean diskFailed;
+        private long size;
+
+        Tee(OutputStream out, OutputStream disk) {
+            this.out = out;
+            this.disk = disk;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            size += len;
+
+            if (disk != null && !diskFailed) {
+                try {
+                    disk.write(b, off, len);
+                } catch (IOException e) {
+                    diskFailed = true;
+                }
+            }
+
+            if (memory != null) {
+                if (size > MAX_MEMORY_ENTRY)
+                    memory = null;
+                else
+                    memory.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+    private static synchronized void trackDiskWrite(long size) throws IOException {
+        if (diskBytes < 0) {
+            diskBytes = pruneDisk();
+        } else {
+            diskBytes += size;
+            if (diskBytes > DISK_LIMIT)
+                diskBytes = pruneDisk();
+        }
+    }
+
+    /**
+     * Delete least recently used files until the directory fits DISK_LIMIT.
+     *
+     * @return bytes left in the directory
+     */
+    private static long pruneDisk() throws IOException {
+        List<Path> files = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(DISK_DIR)) {
+            for (Path f : dir) {
+                files.add(f);
+                total += f.toFile().length();
+            }
+        }
+        if (total <= DISK_LIMIT)
+            return total;
+
+        files.sort(Comparator.comparingLong(f -> f.toFile().lastModified()));
+        for (Path f : files) {
+            if (total <= DISK_LIMIT)
+                break;
+            total -= f.toFile().length();
+            Files.deleteIfExists(f);
+        }
+        return total;
+    }
+}
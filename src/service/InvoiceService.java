@@ -1,32 +1,67 @@
 package service;
 
+import dao.AbstractDAO;
 import dao.InvoiceDAO;
 import dao.OrderDAO;
 import model.Invoice;
 import model.OrderDetail;
+import util.DateFormats;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
- * Service for generating PDF invoices.
+ * Service for generating invoices.
  * 
- * Since we cannot add external PDF libraries (iText/PDFBox) without user
- * confirmation,
- * we generate a simple text-based invoice and store it as a "pseudo-PDF" (text
- * format).
- * The content is stored as CLOB and can be converted to actual PDF later.
- * 
- * For a full PDF implementation, add iText or Apache PDFBox to the project.
+ * The text invoice and transaction log are stored as CLOBs. The PDF is
+ * rendered by PdfInvoiceService into a temp file and streamed into the
+ * invoice_pdf BLOB, so it is never held in memory as a whole.
  */
 public class InvoiceService {
 
     private static final double VAT_RATE = 0.18;
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private static final String NOT_AVAILABLE = "Invoice not available.";
+    private static final DateTimeFormatter DATE_FORMAT = DateFormats.SECONDS;
+
+    private static final ExecutorService RESTORE = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "invoice-restore");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static boolean started = false;
+
+    /**
+     * Store a new invoice whenever an order is delivered or cancelled, so
+     * the stored PDF shows the final status, carrier and delivery date.
+     * PdfInvoiceService only serves stored PDFs rendered for the order's
+     * final status.
+     */
+    public static synchronized void start() {
+        if (started)
+            return;
+        started = true;
+
+        OrderDAO.addOrderChangeListener(orderId -> RESTORE.execute(() -> storeFinalInvoice(orderId)));
+    }
+
+    private static void storeFinalInvoice(int orderId) {
+        OrderDetail order = OrderDAO.getOrderDetail(orderId);
+        if (order != null && isFinal(order.getStatus()))
+            storeInvoice(order);
+    }
+
+    static boolean isFinal(String status) {
+        return "DELIVERED".equalsIgnoreCase(status) || "CANCELLED".equalsIgnoreCase(status);
+    }
 
     /**
      * Generate invoice for an order.
@@ -35,6 +70,11 @@ public class InvoiceService {
         OrderDetail order = OrderDAO.getOrderDetail(orderId);
         if (order == null)
             return null;
+        return storeInvoice(order);
+    }
+
+    private static Invoice storeInvoice(OrderDetail order) {
+        int orderId = order.getOrderId();
 
         // Generate invoice content (text format)
         String invoiceContent = generateInvoiceContent(order);
@@ -42,11 +82,20 @@ public class InvoiceService {
         // Generate transaction log
         String transactionLog = generateTransactionLog(order);
 
-        // Convert content to bytes (pseudo-PDF)
-        byte[] pdfBytes = createPseudoPdf(invoiceContent);
-
-        // Save to database
-        return InvoiceDAO.createInvoice(orderId, pdfBytes, invoiceContent, transactionLog);
+        Path pdfFile = null;
+        try {
+            // Render PDF to disk, then stream it into the database
+            pdfFile = Files.createTempFile("invoice-" + orderId + "-", ".pdf");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(pdfFile))) {
+                PdfInvoiceService.writePdfInvoice(order, out);
+            }
+            return InvoiceDAO.createInvoice(orderId, order.getStatus(), pdfFile, invoiceContent, transactionLog);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            deleteQuietly(pdfFile);
+        }
     }
 
     /**
@@ -60,10 +109,10 @@ public class InvoiceService {
         sb.append("                           INVOICE\n");
         sb.append("═══════════════════════════════════════════════════════════════\n\n");
 
-        sb.append("Invoice Date: ").append(DATE_FORMAT.format(new Date())).append("\n");
+        sb.append("Invoice Date: ").append(DateFormats.now(DATE_FORMAT)).append("\n");
         sb.append("Order ID: #").append(order.getOrderId()).append("\n");
         sb.append("Order Date: ")
-                .append(order.getCreatedAt() != null ? DATE_FORMAT.format(order.getCreatedAt()) : "N/A").append("\n\n");
+                .append(DateFormats.format(order.getCreatedAt(), DATE_FORMAT, "N/A")).append("\n\n");
 
         sb.append("───────────────────────────────────────────────────────────────\n");
         sb.append("CUSTOMER INFORMATION\n");
@@ -78,14 +127,14 @@ public class InvoiceService {
         sb.append("DELIVERY INFORMATION\n");
         sb.append("───────────────────────────────────────────────────────────────\n");
         sb.append("Requested Delivery: ")
-                .append(order.getRequestedDelivery() != null ? DATE_FORMAT.format(order.getRequestedDelivery()) : "N/A")
+                .append(DateFormats.format(order.getRequestedDelivery(), DATE_FORMAT, "N/A"))
                 .append("\n");
         sb.append("Status: ").append(order.getStatus()).append("\n");
         if (order.getCarrierUsername() != null) {
             sb.append("Carrier: ").append(order.getCarrierUsername()).append("\n");
         }
         if (order.getDeliveredAt() != null) {
-            sb.append("Delivered At: ").append(DATE_FORMAT.format(order.getDeliveredAt())).append("\n");
+            sb.append("Delivered At: ").append(DateFormats.format(order.getDeliveredAt(), DATE_FORMAT, "")).append("\n");
         }
         sb.append("\n");
 
@@ -135,16 +184,16 @@ public class InvoiceService {
         PrintWriter pw = new PrintWriter(sw);
 
         pw.println("=== TRANSACTION LOG ===");
-        pw.println("Generated: " + DATE_FORMAT.format(new Date()));
+        pw.println("Generated: " + DateFormats.now(DATE_FORMAT));
         pw.println("Order ID: " + order.getOrderId());
         pw.println("Customer: " + order.getCustomerUsername());
         pw.println();
 
         pw.println("--- ORDER DETAILS ---");
         pw.println("Status: " + order.getStatus());
-        pw.println("Created: " + (order.getCreatedAt() != null ? DATE_FORMAT.format(order.getCreatedAt()) : "N/A"));
+        pw.println("Created: " + DateFormats.format(order.getCreatedAt(), DATE_FORMAT, "N/A"));
         pw.println("Requested Delivery: "
-                + (order.getRequestedDelivery() != null ? DATE_FORMAT.format(order.getRequestedDelivery()) : "N/A"));
+                + DateFormats.format(order.getRequestedDelivery(), DATE_FORMAT, "N/A"));
         pw.println();
 
         pw.println("--- ITEMS ---");
@@ -174,12 +223,12 @@ public class InvoiceService {
             pw.println("--- DELIVERY ---");
             pw.println("Carrier: " + order.getCarrierUsername());
             pw.println("Delivered: "
-                    + (order.getDeliveredAt() != null ? DATE_FORMAT.format(order.getDeliveredAt()) : "Not yet"));
+                    + DateFormats.format(order.getDeliveredAt(), DATE_FORMAT, "Not yet"));
         }
 
         if (order.getCancelledAt() != null) {
             pw.println("--- CANCELLATION ---");
-            pw.println("Cancelled: " + DATE_FORMAT.format(order.getCancelledAt()));
+            pw.println("Cancelled: " + DateFormats.format(order.getCancelledAt(), DATE_FORMAT, ""));
             pw.println("Reason: " + order.getCancelReason());
         }
 
@@ -189,14 +238,13 @@ public class InvoiceService {
         return sw.toString();
     }
 
-    /**
-     * Create pseudo-PDF (text bytes with PDF header for identification).
-     */
-    private static byte[] createPseudoPdf(String content) {
-        // Add a simple header to identify as pseudo-PDF
-        String header = "%PDF-PSEUDO-1.0\n% GreenGrocer Invoice\n% Convert with PDF library for actual PDF\n\n";
-        String fullContent = header + content;
-        return fullContent.getBytes(StandardCharsets.UTF_8);
+    static void deleteQuietly(Path file) {
+        if (file == null)
+            return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (Exception ignored) {
+        }
     }
 
     /**
@@ -210,14 +258,58 @@ public class InvoiceService {
         return s.substring(0, maxLen - 3) + "...";
     }
 
+    /**
+     * Get invoice content as viewable text for an order in the given status,
+     * from InvoiceRenderCache when it was rendered before.
+     */
+    public static String getInvoiceText(int orderId, String status) {
+        try {
+            byte[] text = InvoiceRenderCache.get(orderId, status, InvoiceRenderCache.TEXT, out -> {
+                String content = renderInvoiceText(orderId, status);
+                if (content == null)
+                    throw new IllegalStateException(NOT_AVAILABLE); // don't cache a miss
+                out.write(content.getBytes(StandardCharsets.UTF_8));
+            });
+            return new String(text, StandardCharsets.UTF_8);
+        } catch (IllegalStateException e) {
+            return NOT_AVAILABLE;
+        } catch (Exception e) {
+            e.printStackTrace();
+            String content = renderInvoiceText(orderId, status);
+            return content != null ? content : NOT_AVAILABLE;
+        }
+    }
+
+    /**
+     * Invoice text for the order in {@code status}. The stored text is used
+     * only once the order is delivered or cancelled and was rendered for that
+     * status, like copyPdfTo; before that it is rendered from live data.
+     *
+     * @return the text, or null if the order does not exist
+     */
+    private static String renderInvoiceText(int orderId, String status) {
+        if (isFinal(status)) {
+            Invoice invoice = InvoiceDAO.getInstance().findByOrderId(orderId, AbstractDAO.Projection.SUMMARY);
+            if (invoice != null && status.equalsIgnoreCase(invoice.getOrderStatus())) {
+                String text = storedInvoiceText(invoice);
+                if (text != null)
+                    return text;
+            }
+        }
+
+        OrderDetail order = OrderDAO.getOrderDetail(orderId);
+        return order != null ? generateInvoiceContent(order) : null;
+    }
+
     /**
      * Get invoice content as viewable text.
      */
     public static String getInvoiceText(int orderId) {
-        Invoice invoice = InvoiceDAO.getInstance().findByOrderId(orderId);
-        if (invoice != null && invoice.getInvoiceContent() != null) {
-            return invoice.getInvoiceContent();
-        }
+        // Summary row: the PDF BLOB is never read here
+        Invoice invoice = InvoiceDAO.getInstance().findByOrderId(orderId, AbstractDAO.Projection.SUMMARY);
+        String text = storedInvoiceText(invoice);
+        if (text != null)
+            return text;
 
         // Generate on the fly if not exists
         OrderDetail order = OrderDAO.getOrderDetail(orderId);
@@ -225,6 +317,15 @@ public class InvoiceService {
             return generateInvoiceContent(order);
         }
 
-        return "Invoice not available.";
+        return NOT_AVAILABLE;
+    }
+
+    private static String storedInvoiceText(Invoice invoice) {
+        if (invoice == null)
+            return null;
+        // Archived: decompressed only now, when the invoice is viewed
+        if (invoice.getContentHash() != null)
+            return InvoiceDAO.loadArchivedText(invoice.getContentHash());
+        return invoice.getInvoiceContent();
     }
 }
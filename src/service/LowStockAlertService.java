@@ -0,0 +1,68 @@
+package service;
+
+import dao.ProductDAO;
+import dao.SystemMessageDAO;
+import model.Product;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Low-stock alert engine.
+ *
+ * Reacts to stock-change events from ProductDAO instead of scanning the
+ * Product table whenever the owner opens the alerts tab. Events for the same
+ * product are debounced, so a checkout touching a product several times only
+ * triggers one lookup and at most one alert upsert.
+ */
+public class LowStockAlertService {
+
+    private static final long DEBOUNCE_MS = 1500;
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "low-stock-alerts");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final Map<Integer, ScheduledFuture<?>> PENDING = new ConcurrentHashMap<>();
+
+    private static boolean started = false;
+
+    /**
+     * Register with ProductDAO and reconcile alerts for the current stock once.
+     */
+    public static synchronized void start() {
+        if (started)
+            return;
+        started = true;
+
+        ProductDAO.addStockChangeListener(LowStockAlertService::onStockChanged);
+        SCHEDULER.execute(SystemMessageDAO::checkAndCreateLowStockAlerts);
+    }
+
+    /**
+     * Schedule a check for the product, replacing any check still pending.
+     */
+    public static void onStockChanged(int productId) {
+        PENDING.compute(productId, (id, pending) -> {
+            if (pending != null)
+                pending.cancel(false);
+            return SCHEDULER.schedule(() -> evaluate(id), DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    private static void evaluate(int productId) {
+        PENDING.remove(productId);
+
+        // Stock level only - the image BLOB is never loaded here
+        Product p = ProductDAO.getStockLevel(productId);
+        if (p != null && p.getStock() <= p.getThreshold()) {
+            SystemMessageDAO.createLowStockAlert(p.getProductId(), p.getName(), p.getStock(), p.getThreshold());
+        }
+    }
+}
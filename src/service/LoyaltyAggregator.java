@@ -0,0 +1,53 @@
+package service;
+
+import dao.CustomerLoyaltyDAO;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background folding of the loyalty ledger.
+ *
+ * Checkout and redemption only append rows to LoyaltyLedger. This service
+ * periodically moves pending rows into CustomerLoyalty balances and tiers in
+ * batches, so customer point updates never contend on the balance row during
+ * checkout. Every ledger row is applied exactly once (it is marked in the
+ * same transaction), so CustomerLoyalty.points always equals the sum of the
+ * applied ledger deltas.
+ */
+public class LoyaltyAggregator {
+
+    private static final long INTERVAL_SECONDS = 5;
+    private static final int BATCH_SIZE = 500;
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "loyalty-aggregator");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static boolean started = false;
+
+    public static synchronized void start() {
+        if (started)
+            return;
+        started = true;
+
+        SCHEDULER.scheduleWithFixedDelay(LoyaltyAggregator::drain, 0, INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Apply pending entries until the ledger is caught up.
+     */
+    private static void drain() {
+        try {
+            while (CustomerLoyaltyDAO.applyLedgerBatch(BATCH_SIZE) == BATCH_SIZE) {
+                // full batch - more may be waiting
+            }
+        } catch (Exception e) {
+            // keep the schedule alive
+            e.printStackTrace();
+        }
+    }
+}
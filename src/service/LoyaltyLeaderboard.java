@@ -0,0 +1,133 @@
+package service;
+
+import dao.CustomerLoyaltyDAO;
+import model.CustomerLoyalty;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * In-memory loyalty leaderboard.
+ *
+ * Keeps the top customers (points descending, ties by username) in a sorted
+ * set, updated from CustomerLoyaltyDAO change events. The set always holds
+ * the exact top N rows of CustomerLoyalty: everyone outside it has fewer
+ * points than its last entry. When it shrinks below TOP_K (a member's points
+ * dropped out of the known range) it is reloaded with one indexed query.
+ * Ranks outside the set come from CustomerLoyaltyDAO.getRank().
+ *
+ * Events only cover ledger batches applied by this process; another
+ * instance's aggregator changes the table silently. So the set is also
+ * reloaded once it is MAX_AGE_MS old, and on invalidate() (the owner's
+ * refresh).
+ */
+public class LoyaltyLeaderboard {
+
+    public static final int TOP_K = 100;
+
+    static final long MAX_AGE_MS = 30_000;
+
+    // Extra room so a few members dropping out doesn't force a reload
+    private static final int CAPACITY = TOP_K * 2;
+
+    private static final Comparator<CustomerLoyalty> ORDER = Comparator
+            .comparingInt(CustomerLoyalty::getPoints).reversed()
+            .thenComparing(CustomerLoyalty::getUsername);
+
+    private static final TreeSet<CustomerLoyalty> TOP = new TreeSet<>(ORDER);
+    private static final Map<String, CustomerLoyalty> BY_USERNAME = new HashMap<>();
+
+    // Set holds every CustomerLoyalty row (table smaller than CAPACITY)
+    private static boolean complete = false;
+    private static boolean loaded = false;
+    private static long loadedAt;
+
+    static {
+        CustomerLoyaltyDAO.addLoyaltyChangeListener(LoyaltyLeaderboard::onLoyaltyChanged);
+    }
+
+    /**
+     * Top customers, best first.
+     *
+     * @param limit at most TOP_K
+     */
+    public static synchronized List<CustomerLoyalty> getTop(int limit) {
+        ensureLoaded();
+        List<CustomerLoyalty> list = new ArrayList<>(Math.min(limit, TOP.size()));
+        for (CustomerLoyalty cl : TOP) {
+            if (list.size() >= Math.min(limit, TOP_K))
+                break;
+            list.add(cl);
+        }
+        return list;
+    }
+
+    /**
+     * Rank of a customer (1 = most points).
+     *
+     * @return rank, or -1 if the customer has no loyalty record yet
+     */
+    public static int getRank(String username) {
+        synchronized (LoyaltyLeaderboard.class) {
+            ensureLoaded();
+            CustomerLoyalty cl = BY_USERNAME.get(username);
+            if (cl != null)
+                return TOP.headSet(cl).size() + 1;
+            if (complete)
+                return -1;
+        }
+        return CustomerLoyaltyDAO.getRank(username);
+    }
+
+    /**
+     * Drop the set; the next read loads it again.
+     */
+    public static synchronized void invalidate() {
+        loaded = false;
+    }
+
+    private static synchronized void onLoyaltyChanged(List<CustomerLoyalty> updated) {
+        if (!loaded)
+            return;
+
+        for (CustomerLoyalty cl : updated) {
+            CustomerLoyalty old = BY_USERNAME.remove(cl.getUsername());
+            if (old != null)
+                TOP.remove(old);
+
+            if (complete || (!TOP.isEmpty() && ORDER.compare(cl, TOP.last()) < 0)) {
+                TOP.add(cl);
+                BY_USERNAME.put(cl.getUsername(), cl);
+            }
+            // else: fell below the known range - whoever now belongs here is unknown
+        }
+
+        while (TOP.size() > CAPACITY) {
+            BY_USERNAME.remove(TOP.pollLast().getUsername());
+            complete = false;
+        }
+
+        if (!complete && TOP.size() < TOP_K)
+            loaded = false;
+    }
+
+    private static void ensureLoaded() {
+        if (loaded && System.currentTimeMillis() - loadedAt < MAX_AGE_MS)
+            return;
+
+        List<CustomerLoyalty> rows = CustomerLoyaltyDAO.getTopCustomers(CAPACITY);
+        TOP.clear();
+        BY_USERNAME.clear();
+        for (CustomerLoyalty cl : rows) {
+            TOP.add(cl);
+            BY_USERNAME.put(cl.getUsername(), cl);
+        }
+        complete = rows.size() < CAPACITY;
+        loaded = true;
+        loadedAt = System.currentTimeMillis();
+    }
+}
@@ -2,54 +2,130 @@ package service;
 
 import com.itextpdf.text.*;
 import com.itextpdf.text.pdf.*;
+import dao.InvoiceDAO;
 import dao.OrderDAO;
 import model.OrderDetail;
+import util.DateFormats;
 
-import java.io.FileOutputStream;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.format.DateTimeFormatter;
 
 /**
  * Service for generating PDF invoices using iText library.
+ *
+ * Fonts are resolved once per thread (see Styles), so rendering is safe to
+ * run from several workers at once - see BatchInvoiceService.
  */
 public class PdfInvoiceService {
 
     private static final double VAT_RATE = 0.18;
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("dd/MM/yyyy HH:mm");
+    private static final DateTimeFormatter DATE_FORMAT = DateFormats.INVOICE;
 
-    // PDF Colors
+    // PDF Colors (immutable, shared by all threads)
     private static final BaseColor HEADER_COLOR = new BaseColor(45, 122, 79); // #2D7A4F
     private static final BaseColor TEXT_COLOR = BaseColor.DARK_GRAY;
     private static final BaseColor LINE_COLOR = new BaseColor(229, 231, 235); // #E5E7EB
 
+    private static final float[] ITEM_COLUMN_WIDTHS = { 3, 1, 1.5f, 1.5f };
+
+    /**
+     * Fonts for one rendering thread. iText Font is mutable, so each worker
+     * gets its own copy instead of calling FontFactory.getFont for every
+     * paragraph.
+     */
+    private static final class Styles {
+        final Font title = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 24, HEADER_COLOR);
+        final Font subtitle = FontFactory.getFont(FontFactory.HELVETICA, 14, TEXT_COLOR);
+        final Font label = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10, TEXT_COLOR);
+        final Font text = FontFactory.getFont(FontFactory.HELVETICA, 10, TEXT_COLOR);
+        final Font tableHeader = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10, BaseColor.WHITE);
+        final Font tableCell = FontFactory.getFont(FontFactory.HELVETICA, 9, TEXT_COLOR);
+        final Font total = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 11, HEADER_COLOR);
+        final Font section = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 11, HEADER_COLOR);
+        final Font footer = FontFactory.getFont(FontFactory.HELVETICA_OBLIQUE, 9, BaseColor.GRAY);
+        final Font line = FontFactory.getFont(FontFactory.HELVETICA, 8, LINE_COLOR);
+    }
+
+    private static final ThreadLocal<Styles> STYLES = ThreadLocal.withInitial(Styles::new);
+
     /**
-     * Generate PDF invoice for an order and save to file.
+     * Save the PDF invoice of an order to file.
+     * A stored invoice of a finished order is streamed from the database;
+     * otherwise one is rendered.
      */
     public static void generatePdfInvoice(int orderId, String outputPath) throws Exception {
+        writeToFile(outputPath, out -> writeStoredOrRendered(orderId, out));
+    }
+
+    /**
+     * Save the PDF invoice of an order in the given status to file, reusing
+     * an earlier render from InvoiceRenderCache when there is one.
+     */
+    public static void generatePdfInvoice(int orderId, String status, String outputPath) throws Exception {
+        writeToFile(outputPath, out -> InvoiceRenderCache.write(orderId, status, InvoiceRenderCache.PDF,
+                pdf -> writeStoredOrRendered(orderId, pdf), out));
+    }
+
+    /**
+     * Write to a temp file next to outputPath and move it into place, so a
+     * failed render never leaves an empty or partial invoice behind.
+     */
+    private static void writeToFile(String outputPath, InvoiceRenderCache.Renderer renderer) throws Exception {
+        Path target = Paths.get(outputPath).toAbsolutePath();
+        Path tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".part");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                renderer.render(out);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    static void writeStoredOrRendered(int orderId, OutputStream out) throws Exception {
+        if (InvoiceDAO.copyPdfTo(orderId, out))
+            return;
+
         OrderDetail order = OrderDAO.getOrderDetail(orderId);
         if (order == null) {
             throw new IllegalArgumentException("Order not found: " + orderId);
         }
+        writePdfInvoice(order, out);
+    }
+
+    /**
+     * Render the invoice for an already loaded order to a stream.
+     * The stream is not closed.
+     */
+    public static void writePdfInvoice(OrderDetail order, OutputStream out) throws DocumentException {
+        Styles styles = STYLES.get();
 
         Document document = new Document(PageSize.A4, 40, 40, 50, 50);
-        PdfWriter.getInstance(document, new FileOutputStream(outputPath));
+        PdfWriter writer = PdfWriter.getInstance(document, out);
+        writer.setCloseStream(false);
 
         document.open();
 
         // Add content
-        addHeader(document);
-        addInvoiceInfo(document, order);
-        addCustomerInfo(document, order);
-        addDeliveryInfo(document, order);
-        addOrderItems(document, order);
-        addFooter(document);
+        addHeader(document, styles);
+        addInvoiceInfo(document, order, styles);
+        addCustomerInfo(document, order, styles);
+        addDeliveryInfo(document, order, styles);
+        addOrderItems(document, order, styles);
+        addFooter(document, styles);
 
         document.close();
     }
 
-    private static void addHeader(Document document) throws DocumentException {
-        Font titleFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 24, HEADER_COLOR);
-        Font subtitleFont = FontFactory.getFont(FontFactory.HELVETICA, 14, TEXT_COLOR);
+    private static void addHeader(Document document, Styles styles) throws DocumentException {
+        Font titleFont = styles.title;
+        Font subtitleFont = styles.subtitle;
 
         Paragraph title = new Paragraph("GreenGrocer", titleFont);
         title.setAlignment(Element.ALIGN_CENTER);
@@ -61,31 +137,32 @@ public class PdfInvoiceService {
         subtitle.setSpacingAfter(20);
         document.add(subtitle);
 
-        addLine(document);
+        addLine(document, styles);
     }
 
-    private static void addInvoiceInfo(Document document, OrderDetail order) throws DocumentException {
-        Font labelFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10, TEXT_COLOR);
-        Font valueFont = FontFactory.getFont(FontFactory.HELVETICA, 10, TEXT_COLOR);
-
+    private static void addInvoiceInfo(Document document, OrderDetail order, Styles styles)
+            throws DocumentException {
+        Font labelFont = styles.label;
+        Font valueFont = styles.text;
         PdfPTable table = new PdfPTable(2);
         table.setWidthPercentage(100);
         table.setSpacingBefore(10);
         table.setSpacingAfter(15);
 
-        addInfoRow(table, "Invoice Date:", DATE_FORMAT.format(new Date()), labelFont, valueFont);
+        addInfoRow(table, "Invoice Date:", DateFormats.now(DATE_FORMAT), labelFont, valueFont);
         addInfoRow(table, "Order ID:", "#" + order.getOrderId(), labelFont, valueFont);
         addInfoRow(table, "Order Date:",
-                order.getCreatedAt() != null ? DATE_FORMAT.format(order.getCreatedAt()) : "N/A",
+                DateFormats.format(order.getCreatedAt(), DATE_FORMAT, "N/A"),
                 labelFont, valueFont);
 
         document.add(table);
     }
 
-    private static void addCustomerInfo(Document document, OrderDetail order) throws DocumentException {
-        addSectionTitle(document, "CUSTOMER INFORMATION");
+    private static void addCustomerInfo(Document document, OrderDetail order, Styles styles)
+            throws DocumentException {
+        addSectionTitle(document, "CUSTOMER INFORMATION", styles);
 
-        Font font = FontFactory.getFont(FontFactory.HELVETICA, 10, TEXT_COLOR);
+        Font font = styles.text;
 
         document.add(new Paragraph("Customer: " + order.getCustomerUsername(), font));
         document.add(new Paragraph("Address: " +
@@ -96,13 +173,14 @@ public class PdfInvoiceService {
         document.add(Chunk.NEWLINE);
     }
 
-    private static void addDeliveryInfo(Document document, OrderDetail order) throws DocumentException {
-        addSectionTitle(document, "DELIVERY INFORMATION");
+    private static void addDeliveryInfo(Document document, OrderDetail order, Styles styles)
+            throws DocumentException {
+        addSectionTitle(document, "DELIVERY INFORMATION", styles);
 
-        Font font = FontFactory.getFont(FontFactory.HELVETICA, 10, TEXT_COLOR);
+        Font font = styles.text;
 
         document.add(new Paragraph("Requested Delivery: " +
-                (order.getRequestedDelivery() != null ? DATE_FORMAT.format(order.getRequestedDelivery()) : "N/A"),
+                DateFormats.format(order.getRequestedDelivery(), DATE_FORMAT, "N/A"),
                 font));
         document.add(new Paragraph("Status: " + order.getStatus(), font));
 
@@ -110,22 +188,24 @@ public class PdfInvoiceService {
             document.add(new Paragraph("Carrier: " + order.getCarrierUsername(), font));
         }
         if (order.getDeliveredAt() != null) {
-            document.add(new Paragraph("Delivered At: " + DATE_FORMAT.format(order.getDeliveredAt()), font));
+            document.add(new Paragraph("Delivered At: " + DateFormats.format(order.getDeliveredAt(), DATE_FORMAT, ""),
+                    font));
         }
 
         document.add(Chunk.NEWLINE);
     }
 
-    private static void addOrderItems(Document document, OrderDetail order) throws DocumentException {
-        addSectionTitle(document, "ORDER ITEMS");
+    private static void addOrderItems(Document document, OrderDetail order, Styles styles)
+            throws DocumentException {
+        addSectionTitle(document, "ORDER ITEMS", styles);
 
         PdfPTable table = new PdfPTable(4);
         table.setWidthPercentage(100);
-        table.setWidths(new float[] { 3, 1, 1.5f, 1.5f });
+        table.setWidths(ITEM_COLUMN_WIDTHS);
         table.setSpacingBefore(10);
 
-        Font headerFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10, BaseColor.WHITE);
-        Font cellFont = FontFactory.getFont(FontFactory.HELVETICA, 9, TEXT_COLOR);
+        Font headerFont = styles.tableHeader;
+        Font cellFont = styles.tableCell;
 
         // Header
         addTableHeader(table, "Product", headerFont);
@@ -156,8 +236,8 @@ public class PdfInvoiceService {
         totalsTable.setHorizontalAlignment(Element.ALIGN_RIGHT);
         totalsTable.setSpacingBefore(15);
 
-        Font totalFont = FontFactory.getFont(FontFactory.HELVETICA, 10, TEXT_COLOR);
-        Font boldFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 11, HEADER_COLOR);
+        Font totalFont = styles.text;
+        Font boldFont = styles.total;
 
         addTotalRow(totalsTable, "Subtotal:", String.format("%.2f TL", subtotal), totalFont);
         addTotalRow(totalsTable, "VAT (18%):", String.format("%.2f TL", vat), totalFont);
@@ -166,8 +246,8 @@ public class PdfInvoiceService {
         document.add(totalsTable);
     }
 
-    private static void addFooter(Document document) throws DocumentException {
-        Font footerFont = FontFactory.getFont(FontFactory.HELVETICA_OBLIQUE, 9, BaseColor.GRAY);
+    private static void addFooter(Document document, Styles styles) throws DocumentException {
+        Font footerFont = styles.footer;
 
         Paragraph footer = new Paragraph("\nThank you for shopping with GreenGrocer!", footerFont);
         footer.setAlignment(Element.ALIGN_CENTER);
@@ -176,14 +256,15 @@ public class PdfInvoiceService {
     }
 
     // Helper methods
-    private static void addLine(Document document) throws DocumentException {
+    private static void addLine(Document document, Styles styles) throws DocumentException {
         Paragraph line = new Paragraph("_________________________________________________________________");
-        line.setFont(FontFactory.getFont(FontFactory.HELVETICA, 8, LINE_COLOR));
+        line.setFont(styles.line);
         document.add(line);
     }
 
-    private static void addSectionTitle(Document document, String title) throws DocumentException {
-        Font sectionFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 11, HEADER_COLOR);
+    private static void addSectionTitle(Document document, String title, Styles styles)
+            throws DocumentException {
+        Font sectionFont = styles.section;
         Paragraph section = new Paragraph(title, sectionFont);
         section.setSpacingBefore(10);
         section.setSpacingAfter(8);
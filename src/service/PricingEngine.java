@@ -0,0 +1,313 @@
+package service;
+
+import model.Coupon;
+import model.Product;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Effective (customer-facing) product prices.
+ *
+ * A product's price per kg is its base price passed through the product
+ * rules in order; by default the product discount, then the 2x low-stock
+ * surcharge. Results are kept in primitive arrays, together with the
+ * inputs they were computed from (price, stock, threshold, discount, type).
+ * Each product id gets the next free slot in those arrays on first use, so
+ * they grow with the number of products priced rather than the largest id;
+ * invalidateAll() hands slots out afresh. A product is only run through the
+ * rules again when one of those inputs changes, when the rules change, or
+ * when a time-dependent rule reaches the end of its window; everything else
+ * is a map lookup and an array read. For sorting, prices() returns one array for a whole list.
+ *
+ * Two order-level steps sit on top: volume tiers (a cheaper unit price
+ * from a given number of kg in the cart) and coupon stacking.
+ */
+public class PricingEngine {
+
+    /**
+     * One step of the per-kg price calculation.
+     */
+    @FunctionalInterface
+    public interface PricingRule {
+        /**
+         * Price after this rule, given the price after the previous rules.
+         * Must depend only on the product's price, stock, threshold,
+         * discount and type, and on {@code now}.
+         */
+        double apply(Product product, double price, long now);
+
+        /**
+         * Until when (epoch millis) prices computed at {@code now} stay
+         * valid. Rules that do not depend on time never expire.
+         */
+        default long validUntil(long now) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * The product's own discount percent.
+     */
+    public static final PricingRule PRODUCT_DISCOUNT = (p, price, now) -> p.getDiscountPercent() > 0
+            ? price * (1 - p.getDiscountPercent() / 100.0)
+            : price;
+
+    /**
+     * Double price when stock is at or below the threshold.
+     */
+    public static final PricingRule LOW_STOCK_SURCHARGE = (p, price, now) -> p.getStock() <= p.getThreshold()
+            ? price * 2.0
+            : price;
+
+    /**
+     * Percentage change between two times of day, e.g. -20 for an evening
+     * markdown. A window may wrap past midnight (from 22:00 to 06:00).
+     * Only applies to products of {@code type}, or to all if type is null.
+     */
+    public static class TimeOfDayRule implements PricingRule {
+        private final LocalTime from;
+        private final LocalTime to;
+        private final double percent;
+        private final String type;
+
+        public TimeOfDayRule(LocalTime from, LocalTime to, double percent, String type) {
+            this.from = Objects.requireNonNull(from);
+            this.to = Objects.requireNonNull(to);
+            this.percent = percent;
+            this.type = type;
+        }
+
+        @Override
+        public double apply(Product product, double price, long now) {
+            if (type != null && !type.equalsIgnoreCase(product.getType()))
+                return price;
+            return isActive(toLocal(now).toLocalTime()) ? price * (1 + percent / 100.0) : price;
+        }
+
+        @Override
+        public long validUntil(long now) {
+            LocalDateTime time = toLocal(now);
+            LocalDate day = time.toLocalDate();
+            LocalDateTime next = null;
+            for (LocalTime boundary : new LocalTime[] { from, to }) {
+                LocalDateTime at = day.atTime(boundary);
+                if (!at.isAfter(time))
+                    at = at.plusDays(1);
+                if (next == null || at.isBefore(next))
+                    next = at;
+            }
+            return next.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+
+        private boolean isActive(LocalTime time) {
+            if (from.isBefore(to))
+                return !time.isBefore(from) && time.isBefore(to);
+            return !time.isBefore(from) || time.isBefore(to);
+        }
+
+        private static LocalDateTime toLocal(long millis) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        }
+    }
+
+    /**
+     * Discount on the unit price from {@code minKg} kg of one product.
+     */
+    public record VolumeTier(double minKg, double discountPercent) {
+    }
+
+    private static List<PricingRule> rules = List.of(PRODUCT_DISCOUNT, LOW_STOCK_SURCHARGE);
+    private static VolumeTier[] volumeTiers = new VolumeTier[0];
+
+    // Per slot: the computed price and the inputs it came from.
+    // generation[slot] != current generation means "not computed".
+    private static final HashMap<Integer, Integer> slotOf = new HashMap<>();
+    private static double[] effective = new double[0];
+    private static double[] basePrice = new double[0];
+    private static double[] stock = new double[0];
+    private static int[] threshold = new int[0];
+    private static double[] discount = new double[0];
+    private static String[] type = new String[0];
+    private static int[] generation = new int[0];
+
+    private static int currentGeneration = 1;
+    private static long expiresAt = Long.MAX_VALUE;
+    private static long computed; // rule evaluations, for diagnostics
+
+    // ========== CONFIGURATION ==========
+
+    /**
+     * Replace the product rules. All prices are recomputed on next use.
+     */
+    public static synchronized void setRules(List<PricingRule> newRules) {
+        rules = List.copyOf(newRules);
+        invalidateAll();
+    }
+
+    public static synchronized List<PricingRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Replace the volume tiers. Tiers are matched by the largest minKg not
+     * above the quantity.
+     */
+    public static synchronized void setVolumeTiers(List<VolumeTier> tiers) {
+        VolumeTier[] sorted = tiers.toArray(new VolumeTier[0]);
+        Arrays.sort(sorted, Comparator.comparingDouble(VolumeTier::minKg));
+        volumeTiers = sorted;
+    }
+
+    /**
+     * Forget all computed prices.
+     */
+    public static synchronized void invalidateAll() {
+        currentGeneration++;
+        slotOf.clear();
+        expiresAt = Long.MAX_VALUE;
+    }
+
+    // ========== PRODUCT PRICES ==========
+
+    /**
+     * Effective price per kg of {@code product}.
+     */
+    public static synchronized double price(Product product) {
+        return priceOf(product, System.currentTimeMillis());
+    }
+
+    /**
+     * Effective prices of {@code products}, in list order.
+     */
+    public static synchronized double[] prices(List<Product> products) {
+        long now = System.currentTimeMillis();
+        double[] out = new double[products.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = priceOf(products.get(i), now);
+        }
+        return out;
+    }
+
+    /**
+     * Sort {@code products} by effective price, pricing each product once.
+     */
+    public static void sortByPrice(List<Product> products, boolean descending) {
+        double[] keys = prices(products);
+        Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+
+        Comparator<Integer> byPrice = (a, b) -> Double.compare(keys[a], keys[b]);
+        Arrays.sort(order, descending ? byPrice.reversed() : byPrice);
+
+        List<Product> sorted = new ArrayList<>(order.length);
+        for (int i : order) {
+            sorted.add(products.get(i));
+        }
+        for (int i = 0; i < order.length; i++) {
+            products.set(i, sorted.get(i));
+        }
+    }
+
+    /**
+     * Unit price for {@code kg} kg of {@code product}: the effective price
+     * less the matching volume tier, if any.
+     */
+    public static synchronized double unitPrice(Product product, double kg) {
+        double price = priceOf(product, System.currentTimeMillis());
+        VolumeTier tier = null;
+        for (VolumeTier t : volumeTiers) {
+            if (kg < t.minKg())
+                break;
+            tier = t;
+        }
+        return tier != null ? price * (1 - tier.discountPercent() / 100.0) : price;
+    }
+
+    /**
+     * Number of times the rules have been evaluated for a product.
+     */
+    public static synchronized long getComputedCount() {
+        return computed;
+    }
+
+    private static double priceOf(Product p, long now) {
+        if (now >= expiresAt)
+            invalidateAll();
+
+        int id = p.getProductId();
+        if (id <= 0)
+            return compute(p, now); // not saved yet, nothing to key by
+
+        int slot = slotOf.computeIfAbsent(id, k -> slotOf.size());
+        if (slot >= generation.length)
+            grow(slot + 1);
+
+        if (generation[slot] == currentGeneration
+                && basePrice[slot] == p.getPrice()
+                && stock[slot] == p.getStock()
+                && threshold[slot] == p.getThreshold()
+                && discount[slot] == p.getDiscountPercent()
+                && Objects.equals(type[slot], p.getType())) {
+            return effective[slot];
+        }
+
+        effective[slot] = compute(p, now);
+        basePrice[slot] = p.getPrice();
+        stock[slot] = p.getStock();
+        threshold[slot] = p.getThreshold();
+        discount[slot] = p.getDiscountPercent();
+        type[slot] = p.getType();
+        generation[slot] = currentGeneration;
+        return effective[slot];
+    }
+
+    private static double compute(Product p, long now) {
+        computed++;
+        double price = p.getPrice();
+        for (PricingRule rule : rules) {
+            price = rule.apply(p, price, now);
+            expiresAt = Math.min(expiresAt, rule.validUntil(now));
+        }
+        return price;
+    }
+
+    private static void grow(int minSize) {
+        int size = Math.max(minSize, generation.length * 2);
+        effective = Arrays.copyOf(effective, size);
+        basePrice = Arrays.copyOf(basePrice, size);
+        stock = Arrays.copyOf(stock, size);
+        threshold = Arrays.copyOf(threshold, size);
+        discount = Arrays.copyOf(discount, size);
+        type = Arrays.copyOf(type, size);
+        generation = Arrays.copyOf(generation, size);
+    }
+
+    // ========== COUPONS ==========
+
+    /**
+     * Total discount of {@code coupons} on {@code subtotal}. Coupons stack
+     * in order, each applied (Coupon.calculateDiscount) to what the previous
+     * ones left. Never more than the subtotal.
+     */
+    public static double couponDiscount(double subtotal, List<Coupon> coupons) {
+        double remaining = subtotal;
+        for (Coupon c : coupons) {
+            if (c == null || remaining <= 0)
+                continue;
+            remaining -= c.calculateDiscount(remaining);
+        }
+        return subtotal - remaining;
+    }
+}
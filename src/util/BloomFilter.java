@@ -0,0 +1,104 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over strings.
+ *
+ * mightContain never returns false for an added key; it returns true for an
+ * absent key with roughly the configured probability while at most
+ * {@code capacity} keys are added. Keys cannot be removed.
+ *
+ * Thread-safe without locks: bits are set with compare-and-set.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long numBits;
+    private final int numHashes;
+    private final long capacity;
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * @param capacity expected number of keys
+     * @param fpp      false positive probability at capacity, e.g. 0.01
+     */
+    public BloomFilter(long capacity, double fpp) {
+        capacity = Math.max(1, capacity);
+        long bits = (long) Math.ceil(-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        bits = Math.max(64, Math.min(bits, 1L << 32));
+
+        this.capacity = capacity;
+        this.numBits = bits;
+        this.numHashes = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+        this.words = new AtomicLongArray((int) ((bits + 63) / 64));
+    }
+
+    public void add(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            setBit(index(h1 + i * h2));
+        }
+        count.incrementAndGet();
+    }
+
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            long bit = index(h1 + i * h2);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * More keys added than the filter was sized for; false positives rise
+     * from here on.
+     */
+    public boolean isOverCapacity() {
+        return count.get() > capacity;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    private long index(int combined) {
+        // Non-negative, then folded into [0, numBits)
+        return (combined & 0x7fffffffL) * numBits >>> 31;
+    }
+
+    private void setBit(long bit) {
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long old;
+        do {
+            old = words.get(word);
+            if ((old & mask) != 0)
+                return;
+        } while (!words.compareAndSet(word, old, old | mask));
+    }
+
+    /**
+     * 64-bit FNV-1a over the chars, finished with the MurmurHash3 mixer.
+     */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe63bc4b3L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
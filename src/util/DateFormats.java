@@ -0,0 +1,42 @@
+package util;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Shared date/time formats.
+ *
+ * DateTimeFormatter is immutable and thread-safe, so one instance per pattern
+ * is shared by controllers (table cells) and services (invoices, reports,
+ * including parallel runs). Never build formatters per call with ofPattern -
+ * parsing the pattern costs far more than formatting.
+ */
+public class DateFormats {
+
+    /** Table cells: 05-31 14:30 */
+    public static final DateTimeFormatter SHORT = DateTimeFormatter.ofPattern("MM-dd HH:mm");
+
+    /** Details and dialogs: 2024-05-31 14:30 */
+    public static final DateTimeFormatter MINUTES = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    /** Text invoices and transaction logs: 2024-05-31 14:30:05 */
+    public static final DateTimeFormatter SECONDS = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /** PDF invoices: 31/05/2024 14:30 */
+    public static final DateTimeFormatter INVOICE = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    /**
+     * Format a timestamp, or return {@code ifNull} when it is null.
+     */
+    public static String format(Timestamp ts, DateTimeFormatter format, String ifNull) {
+        return ts != null ? ts.toLocalDateTime().format(format) : ifNull;
+    }
+
+    /**
+     * Format the current time.
+     */
+    public static String now(DateTimeFormatter format) {
+        return LocalDateTime.now().format(format);
+    }
+}
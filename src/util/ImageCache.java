@@ -0,0 +1,299 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * Local disk cache of product image bytes, keyed by their SHA-256.
+ *
+ * Every image is one file named by its hash. A memory-mapped index file
+ * (fixed slots of hash, size, last use) tracks what is cached, so opening the
+ * cache, lookups and LRU bookkeeping need no directory scans and no write
+ * calls. Entries are read whole and checked against their hash before use; a
+ * corrupt or truncated file is dropped and reported as a miss.
+ * When the cached bytes pass MAX_BYTES, least recently used entries are
+ * evicted.
+ *
+ * Because keys are content hashes, an entry never goes stale: a changed image
+ * has a new hash in the database and simply misses. If the cache folder
+ * cannot be used, every call is a miss and puts are ignored.
+ */
+public class ImageCache {
+
+    public static final Path DIR = Path.of(System.getProperty("greengrocer.images.cacheDir",
+            Path.of(System.getProperty("user.home"), ".greengrocer", "image-cache").toString()));
+    public static final long MAX_BYTES = Long.getLong("greengrocer.images.cacheBytes", 256L * 1024 * 1024);
+
+    // Index layout: SLOTS slots of [hash 32][size 4][last used 8][state 4]
+    private static final int SLOTS = 1 << 16;
+    private static final int SLOT_SIZE = 48;
+    private static final int HASH_LEN = 32;
+    private static final int SIZE_OFFSET = 32;
+    private static final int USED_OFFSET = 36;
+    private static final int STATE_OFFSET = 44;
+    private static final int EMPTY = 0;
+    private static final int LIVE = 1;
+    private static final int DELETED = 2;
+    private static final int MAX_FILL = SLOTS / 4 * 3;
+
+    private static MappedByteBuffer index;
+    private static boolean opened = false;
+    private static long totalBytes;
+    private static int live;
+    private static int deleted;
+
+    /**
+     * SHA-256 of {@code data}, as 64 hex characters; the cache key and the
+     * value of Product.image_hash / thumbnail_hash.
+     */
+    public static String hash(byte[] data) {
+        return HexFormat.of().formatHex(digest(data));
+    }
+
+    /**
+     * Cached bytes for {@code hash}, or null on a miss.
+     */
+    public static byte[] get(String hash) {
+        byte[] key = parse(hash);
+        if (key == null)
+            return null;
+
+        int size;
+        synchronized (ImageCache.class) {
+            if (!open())
+                return null;
+            int slot = find(key);
+            if (slot < 0)
+                return null;
+            size = index.getInt(slot * SLOT_SIZE + SIZE_OFFSET);
+            index.putLong(slot * SLOT_SIZE + USED_OFFSET, System.currentTimeMillis());
+        }
+
+        byte[] data = read(fileFor(key), size);
+        if (data == null || !Arrays.equals(digest(data), key)) {
+            remove(key);
+            return null;
+        }
+        return data;
+    }
+
+    /**
+     * Cache {@code data} under {@code hash}. Ignored if the bytes do not
+     * have that hash.
+     */
+    public static void put(String hash, byte[] data) {
+        byte[] key = parse(hash);
+        if (key == null || data == null || data.length > MAX_BYTES || !Arrays.equals(digest(data), key))
+            return;
+
+        synchronized (ImageCache.class) {
+            if (!open() || find(key) >= 0)
+                return;
+        }
+
+        // Write outside the lock; readers only see the file once it is indexed
+        Path file = fileFor(key);
+        try {
+            Path tmp = Files.createTempFile(DIR, "put", ".part");
+            Files.write(tmp, data);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        synchronized (ImageCache.class) {
+            if (find(key) >= 0)
+                return;
+            while (totalBytes + data.length > MAX_BYTES && live > 0) {
+                evictOldest();
+            }
+            if (live + deleted >= MAX_FILL)
+                rehash();
+            if (live >= MAX_FILL)
+                evictOldest();
+            insert(key, data.length, System.currentTimeMillis());
+        }
+    }
+
+    // ========== INDEX ==========
+
+    private static boolean open() {
+        if (opened)
+            return index != null;
+        opened = true;
+
+        try {
+            Files.createDirectories(DIR);
+            try (FileChannel ch = FileChannel.open(DIR.resolve("index.bin"), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                index = ch.map(FileChannel.MapMode.READ_WRITE, 0, (long) SLOTS * SLOT_SIZE);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Image cache disabled: " + e.getMessage());
+            index = null;
+            return false;
+        }
+
+        for (int slot = 0; slot < SLOTS; slot++) {
+            int state = index.getInt(slot * SLOT_SIZE + STATE_OFFSET);
+            if (state == LIVE) {
+                live++;
+                totalBytes += index.getInt(slot * SLOT_SIZE + SIZE_OFFSET);
+            } else if (state == DELETED) {
+                deleted++;
+            }
+        }
+        return true;
+    }
+
+    // Slot holding key, or -1
+    private static int find(byte[] key) {
+        for (int i = 0, slot = home(key); i < SLOTS; i++, slot = (slot + 1) & (SLOTS - 1)) {
+            int state = index.getInt(slot * SLOT_SIZE + STATE_OFFSET);
+            if (state == EMPTY)
+                return -1;
+            if (state == LIVE && keyAt(slot, key))
+                return slot;
+        }
+        return -1;
+    }
+
+    private static void insert(byte[] key, int size, long used) {
+        int slot = home(key);
+        while (true) {
+            int state = index.getInt(slot * SLOT_SIZE + STATE_OFFSET);
+            if (state != LIVE)
+                break;
+            slot = (slot + 1) & (SLOTS - 1);
+        }
+        if (index.getInt(slot * SLOT_SIZE + STATE_OFFSET) == DELETED)
+            deleted--;
+
+        int base = slot * SLOT_SIZE;
+        index.put(base, key);
+        index.putInt(base + SIZE_OFFSET, size);
+        index.putLong(base + USED_OFFSET, used);
+        index.putInt(base + STATE_OFFSET, LIVE);
+        live++;
+        totalBytes += size;
+    }
+
+    private static synchronized void remove(byte[] key) {
+        if (index == null)
+            return;
+        int slot = find(key);
+        if (slot >= 0)
+            drop(slot);
+    }
+
+    private static void drop(int slot) {
+        int base = slot * SLOT_SIZE;
+        byte[] key = new byte[HASH_LEN];
+        index.get(base, key);
+        index.putInt(base + STATE_OFFSET, DELETED);
+        live--;
+        deleted++;
+        totalBytes -= index.getInt(base + SIZE_OFFSET);
+        try {
+            Files.deleteIfExists(fileFor(key));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void evictOldest() {
+        int oldest = -1;
+        long oldestUsed = Long.MAX_VALUE;
+        for (int slot = 0; slot < SLOTS; slot++) {
+            int base = slot * SLOT_SIZE;
+            if (index.getInt(base + STATE_OFFSET) == LIVE && index.getLong(base + USED_OFFSET) < oldestUsed) {
+                oldestUsed = index.getLong(base + USED_OFFSET);
+                oldest = slot;
+            }
+        }
+        if (oldest >= 0)
+            drop(oldest);
+    }
+
+    // Rebuild the table without tombstones
+    private static void rehash() {
+        ByteBuffer copy = ByteBuffer.allocate(SLOTS * SLOT_SIZE);
+        copy.put(0, index, 0, SLOTS * SLOT_SIZE);
+        for (int slot = 0; slot < SLOTS; slot++) {
+            index.putInt(slot * SLOT_SIZE + STATE_OFFSET, EMPTY);
+        }
+        live = 0;
+        deleted = 0;
+        totalBytes = 0;
+
+        byte[] key = new byte[HASH_LEN];
+        for (int slot = 0; slot < SLOTS; slot++) {
+            int base = slot * SLOT_SIZE;
+            if (copy.getInt(base + STATE_OFFSET) != LIVE)
+                continue;
+            copy.get(base, key);
+            insert(key.clone(), copy.getInt(base + SIZE_OFFSET), copy.getLong(base + USED_OFFSET));
+        }
+    }
+
+    private static int home(byte[] key) {
+        return ((key[0] & 0xFF) | (key[1] & 0xFF) << 8 | (key[2] & 0xFF) << 16) & (SLOTS - 1);
+    }
+
+    private static boolean keyAt(int slot, byte[] key) {
+        int base = slot * SLOT_SIZE;
+        for (int i = 0; i < HASH_LEN; i++) {
+            if (index.get(base + i) != key[i])
+                return false;
+        }
+        return true;
+    }
+
+    // ========== FILES ==========
+
+    // A plain read: a mapping would hold the file open until GC, and on
+    // Windows a mapped file cannot be deleted, so eviction would fail
+    private static byte[] read(Path file, int size) {
+        try {
+            if (Files.size(file) != size)
+                return null;
+            byte[] data = Files.readAllBytes(file);
+            return data.length == size ? data : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static Path fileFor(byte[] key) {
+        return DIR.resolve(HexFormat.of().formatHex(key));
+    }
+
+    private static byte[] parse(String hash) {
+        if (hash == null || hash.length() != HASH_LEN * 2)
+            return null;
+        try {
+            return HexFormat.of().parseHex(hash);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static byte[] digest(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
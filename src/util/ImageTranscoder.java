@@ -0,0 +1,127 @@
+package util;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Turns an uploaded product image into the renditions we store: the product
+ * image (detail view) and a thumbnail (customer product cards).
+ *
+ * Each rendition is scaled down to fit its maximum size (never up),
+ * flattened onto white and re-encoded as a baseline JPEG, lowering the
+ * quality step by step until it fits its byte budget. Only the pixels are
+ * written, so EXIF, ICC profiles and other metadata are dropped.
+ *
+ * Sizes and budgets can be changed with the greengrocer.images.* system
+ * properties.
+ */
+public class ImageTranscoder {
+
+    public static final int IMAGE_MAX_SIZE = Integer.getInteger("greengrocer.images.maxSize", 640);
+    public static final int IMAGE_MAX_BYTES = Integer.getInteger("greengrocer.images.maxBytes", 96 * 1024);
+
+    // Cards show 90x70; twice that stays sharp on HiDPI screens
+    public static final int THUMB_MAX_SIZE = Integer.getInteger("greengrocer.images.thumbSize", 180);
+    public static final int THUMB_MAX_BYTES = Integer.getInteger("greengrocer.images.thumbBytes", 16 * 1024);
+
+    private static final float START_QUALITY = 0.85f;
+    private static final float MIN_QUALITY = 0.35f;
+    private static final float QUALITY_STEP = 0.1f;
+
+    /**
+     * Image and thumbnail of one product. The thumbnail is null if the
+     * source could not be decoded; the image is then the source unchanged.
+     */
+    public record Renditions(byte[] image, byte[] thumbnail) {
+    }
+
+    /**
+     * Both renditions of {@code source}, or null if source is null.
+     */
+    public static Renditions transcode(byte[] source) {
+        if (source == null || source.length == 0)
+            return null;
+
+        try {
+            BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(source));
+            if (decoded == null) {
+                // No reader for this format: keep what we were given
+                return new Renditions(source, null);
+            }
+
+            return new Renditions(encode(decoded, IMAGE_MAX_SIZE, IMAGE_MAX_BYTES),
+                    encode(decoded, THUMB_MAX_SIZE, THUMB_MAX_BYTES));
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            return new Renditions(source, null);
+        }
+    }
+
+    private static byte[] encode(BufferedImage source, int maxSize, int maxBytes) throws IOException {
+        BufferedImage scaled = scale(source, maxSize);
+
+        byte[] best = null;
+        for (float q = START_QUALITY; q >= MIN_QUALITY - 1e-6f; q -= QUALITY_STEP) {
+            best = writeJpeg(scaled, q);
+            if (best.length <= maxBytes)
+                break;
+        }
+        return best;
+    }
+
+    // Fit within maxSize x maxSize on a white RGB canvas
+    private static BufferedImage scale(BufferedImage source, int maxSize) {
+        int w = source.getWidth();
+        int h = source.getHeight();
+        double ratio = Math.min(1.0, Math.min((double) maxSize / w, (double) maxSize / h));
+        int targetW = Math.max(1, (int) Math.round(w * ratio));
+        int targetH = Math.max(1, (int) Math.round(h * ratio));
+
+        // Halve first: one bilinear step from a large source aliases badly
+        BufferedImage current = source;
+        while (current.getWidth() / 2 >= targetW && current.getHeight() / 2 >= targetH) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        return draw(current, targetW, targetH);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int w, int h) {
+        BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, w, h);
+            g.drawImage(source, 0, 0, w, h, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+
+    private static byte[] writeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
@@ -1,95 +1,221 @@
 package util;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utility to automatically load product images from images_market folder.
+ *
+ * The folder is listed once into an index of normalized name -> file
+ * (lower case, no spaces, no extension); a WatchService keeps the index in
+ * step with files added, replaced or removed later, so a lookup is a map
+ * get instead of a directory scan.
  */
 public class ImageUtil {
 
     private static final String IMAGE_FOLDER = "images_market";
 
+    // null until the folder has been listed (or after a watch overflow)
+    private static volatile Map<String, Path> index;
+    // Index being listed; receives watch events as well
+    private static volatile Map<String, Path> building;
+    private static boolean watching = false;
+
     /**
      * Load image for a product by name.
      * Searches for PNG, JPG, or JPEG files in images_market folder.
-     * 
+     *
      * @param productName The product name (case-insensitive)
      * @return byte array of image data, or null if not found
      */
     public static byte[] loadProductImage(String productName) {
-        if (productName == null || productName.trim().isEmpty()) {
+        Path file = findProductImage(productName);
+        if (file == null) {
+            if (productName != null && !productName.isBlank())
+                System.out.println("⚠ No image found for product: " + productName);
             return null;
         }
+        return readImage(file);
+    }
 
-        String targetName = productName.trim();
-        System.out.println("🔍 Searching for image: '" + targetName + "'");
-
-        File folder = new File(IMAGE_FOLDER);
-        if (!folder.exists() || !folder.isDirectory()) {
-            System.err.println("❌ Image folder not found: " + IMAGE_FOLDER);
+    /**
+     * The image file for a product, or null if there is none.
+     * Matches case-insensitively, ignoring spaces ("red apple" finds
+     * "RedApple.jpg").
+     */
+    public static Path findProductImage(String productName) {
+        if (productName == null || productName.trim().isEmpty()) {
             return null;
         }
+        Map<String, Path> files = index();
+        return files != null ? files.get(normalize(productName)) : null;
+    }
 
-        File[] files = folder.listFiles();
-        if (files == null)
+    /**
+     * Read a whole image file, or null if it cannot be read.
+     */
+    public static byte[] readImage(Path file) {
+        try {
+            return Files.readAllBytes(file);
+        } catch (IOException e) {
+            System.err.println("Error reading image file: " + file.getFileName());
+            e.printStackTrace();
             return null;
+        }
+    }
 
-        // Try to find a match case-insensitively
-        for (File file : files) {
-            if (!file.isFile())
-                continue;
+    /**
+     * Check if image exists for a product.
+     */
+    public static boolean imageExists(String productName) {
+        return findProductImage(productName) != null;
+    }
 
-            String fileName = file.getName();
-            int lastDot = fileName.lastIndexOf('.');
-            if (lastDot == -1)
-                continue;
+    // ========== INDEX ==========
 
-            String nameWithoutExt = fileName.substring(0, lastDot);
-            String ext = fileName.substring(lastDot).toLowerCase();
+    private static Map<String, Path> index() {
+        Map<String, Path> current = index;
+        if (current != null)
+            return current;
 
-            // Check if extension is supported
-            if (!ext.equals(".jpg") && !ext.equals(".jpeg") && !ext.equals(".png")) {
-                continue;
-            }
+        synchronized (ImageUtil.class) {
+            if (index != null)
+                return index;
 
-            // Match criteria:
-            // 1. Exact case-insensitive match (e.g., "arugula" matches "Arugula.jpg")
-            // 2. Normalized match (no spaces, e.g., "red apple" matches "RedApple.jpg")
-            String normalizedTarget = targetName.toLowerCase().replaceAll("\\s+", "");
-            String normalizedFile = nameWithoutExt.toLowerCase().replaceAll("\\s+", "");
+            Path folder = Path.of(IMAGE_FOLDER);
+            if (!Files.isDirectory(folder)) {
+                System.err.println("❌ Image folder not found: " + IMAGE_FOLDER);
+                return null;
+            }
 
-            if (nameWithoutExt.equalsIgnoreCase(targetName) || normalizedFile.equals(normalizedTarget)) {
-                System.out.println("  ✅ Match found: " + fileName);
-                return readImageFile(file);
+            // Watch before listing, so a file added during the listing is
+            // not missed by both
+            if (!watching)
+                watching = startWatcher(folder);
+
+            Map<String, Path> built = new ConcurrentHashMap<>();
+            building = built;
+            try (DirectoryStream<Path> dir = Files.newDirectoryStream(folder)) {
+                for (Path file : dir) {
+                    String key = indexKey(file);
+                    if (key != null)
+                        built.putIfAbsent(key, file);
+                }
+                // Published before building is cleared, so no event falls between
+                index = built;
+                return built;
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            } finally {
+                building = null;
             }
         }
+    }
+
+    // Normalized product name of an image file, or null if it is not one
+    private static String indexKey(Path file) {
+        if (!Files.isRegularFile(file))
+            return null;
+
+        String fileName = file.getFileName().toString();
+        int lastDot = fileName.lastIndexOf('.');
+        if (lastDot == -1)
+            return null;
+
+        // Check if extension is supported
+        String ext = fileName.substring(lastDot).toLowerCase(Locale.ROOT);
+        if (!ext.equals(".jpg") && !ext.equals(".jpeg") && !ext.equals(".png"))
+            return null;
+
+        return normalize(fileName.substring(0, lastDot));
+    }
+
+    // Lower case without whitespace
+    private static String normalize(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isWhitespace(c))
+                sb.append(c);
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
 
-        System.out.println("⚠ No image found for product: " + productName);
-        return null;
+    private static boolean startWatcher(Path folder) {
+        WatchService watcher;
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            folder.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            // Without a watcher the index is still right for files present now
+            e.printStackTrace();
+            return false;
+        }
+
+        Thread t = new Thread(() -> watch(folder, watcher), "image-index-watcher");
+        t.setDaemon(true);
+        t.start();
+        return true;
     }
 
-    /**
-     * Read image file into byte array.
-     */
-    private static byte[] readImageFile(File file) {
-        try (FileInputStream fis = new FileInputStream(file)) {
-            byte[] imageData = new byte[(int) file.length()];
-            fis.read(imageData);
-            System.out.println("✅ Loaded image: " + file.getName());
-            return imageData;
+    private static void watch(Path folder, WatchService watcher) {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // Lost events: list the folder again on the next lookup
+                        index = null;
+                        continue;
+                    }
+                    Path file = folder.resolve((Path) event.context());
+                    Map<String, Path> current = index;
+                    Map<String, Path> next = building;
+                    if (current != null)
+                        apply(current, file, event.kind());
+                    if (next != null)
+                        apply(next, file, event.kind());
+                }
+                if (!key.reset()) {
+                    // Folder gone; the next lookup lists it again if it comes back
+                    synchronized (ImageUtil.class) {
+                        index = null;
+                        watching = false;
+                    }
+                    watcher.close();
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
         } catch (IOException e) {
-            System.err.println("Error reading image file: " + file.getName());
             e.printStackTrace();
-            return null;
         }
     }
 
-    /**
-     * Check if image exists for a product.
-     */
-    public static boolean imageExists(String productName) {
-        return loadProductImage(productName) != null;
+    private static void apply(Map<String, Path> current, Path file, WatchEvent.Kind<?> kind) {
+        if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+            String name = file.getFileName().toString();
+            int lastDot = name.lastIndexOf('.');
+            if (lastDot > 0)
+                current.remove(normalize(name.substring(0, lastDot)), file);
+            return;
+        }
+        String key = indexKey(file);
+        if (key != null)
+            current.putIfAbsent(key, file);
     }
 }
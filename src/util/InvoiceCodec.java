@@ -0,0 +1,207 @@
+package util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compression and content hashing for archived invoices.
+ *
+ * Invoices are small and mostly made of the same template text, so plain
+ * deflate gains little per document. Each codec therefore deflates with a
+ * preset dictionary holding the repeated template segments (banners, labels,
+ * iText object boilerplate); those segments then cost a few bytes each.
+ *
+ * V1 dictionaries are lists of template segments; V2 dictionaries are
+ * sample invoice output and compress text about 30% better. New blobs are
+ * written with V2, V1 is kept so older blobs still decode.
+ *
+ * A codec name identifies its dictionary byte for byte. Never edit an
+ * existing dictionary - add a new codec instead, or archived blobs stop
+ * decoding.
+ */
+public class InvoiceCodec {
+
+    public static final String TEXT_V1 = "DEFLATE-TXT1";
+    public static final String PDF_V1 = "DEFLATE-PDF1";
+    public static final String TEXT_V2 = "DEFLATE-TXT2";
+    public static final String PDF_V2 = "DEFLATE-PDF2";
+
+    // Escaped so the dictionary bytes do not depend on javac -encoding
+    private static final String RULE = "\u2500".repeat(63) + "\n";
+    private static final String BANNER = "\u2550".repeat(63) + "\n";
+
+    // Most frequent segments last - deflate reaches them with shorter distances
+    private static final byte[] TEXT_DICT_V1 = String.join("",
+            "Not provided", "Not yet", "N/A", "NEW", "ASSIGNED", "DELIVERED", "CANCELLED",
+            "--- CANCELLATION ---\nCancelled: ", "Reason: ",
+            "--- DELIVERY ---\nCarrier: ", "Delivered: ",
+            "=== TRANSACTION LOG ===\nGenerated: ", "\n--- ORDER DETAILS ---\nStatus: ", "Created: ",
+            "\n--- ITEMS ---\n", "\n--- TOTALS ---\nSubtotal: ", "VAT (18%): ", "Total (DB): ",
+            "\n=== END TRANSACTION LOG ===\n",
+            "Product ID: ", ", Name: ", ", Kg: ", ", Price: ", " (effective), Line Total: ",
+            BANNER, "                         GreenGrocer\n", "                           INVOICE\n", BANNER,
+            "\nInvoice Date: ", "Order ID: #", "Order Date: ",
+            RULE, "CUSTOMER INFORMATION\n", RULE, "Customer: ", "Address: ", "Phone: ",
+            RULE, "DELIVERY INFORMATION\n", RULE, "Requested Delivery: ", "Status: ", "Carrier: ",
+            "Delivered At: ",
+            RULE, "ORDER ITEMS\n", RULE,
+            String.format("%-30s %8s %12s %12s\n", "Product", "Kg", "Unit Price", "Total"),
+            String.format("%52s ", "Subtotal:"), String.format("%52s ", "VAT (18%):"),
+            BANNER, String.format("%52s ", "TOTAL:"), BANNER)
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] PDF_DICT_V1 = String.join("",
+            "/Producer(iText\u00ae 5.5.13.3 \u00a92000-2022 iText Group NV \\(AGPL-version\\))",
+            "/CreationDate(D:", "/ModDate(D:", "/Info ", "/ID [<", "><", ">]",
+            "<</Type/Catalog/Pages ", "<</Type/Pages/Count ", "/Kids[",
+            "/Resources<</Font<<", "/ProcSet [/PDF /Text /ImageB /ImageC /ImageI]>>",
+            "/MediaBox[0 0 595 842]", "<</Type/Page/Contents ", "/Parent ",
+            "<</Type/Font/Subtype/Type1/BaseFont/Helvetica/Encoding/WinAnsiEncoding>>",
+            "<</Type/Font/Subtype/Type1/BaseFont/Helvetica-Bold/Encoding/WinAnsiEncoding>>",
+            "<</Type/Font/Subtype/Type1/BaseFont/Helvetica-Oblique/Encoding/WinAnsiEncoding>>",
+            "xref\n0 ", "0000000000 65535 f \n", " 00000 n \n", "trailer\n<</Size ", "/Root ",
+            "startxref\n", "\n%%EOF\n",
+            "<</Length ", "/Filter/FlateDecode>>stream\n", "\nendstream\nendobj\n", " 0 obj\n", " 0 R",
+            "%PDF-1.4\n%\u00e2\u00e3\u00cf\u00d3\n")
+            .getBytes(StandardCharsets.ISO_8859_1);
+
+    // V2: real output rather than segments - the transaction log and invoice
+    // text of a synthetic cancelled and delivered order, and the skeleton of a
+    // generated PDF with its content stream removed. Matches whole lines and
+    // their order, not just labels. Kept as binary resources next to this class
+    // so the bytes never depend on the source encoding.
+    private static final byte[] TEXT_DICT_V2 = resource("invoice-text-v2.dict");
+    private static final byte[] PDF_DICT_V2 = resource("invoice-pdf-v2.dict");
+
+    static {
+        verify(TEXT_V1, TEXT_DICT_V1, "570944f0e6067ef7cdf5ef59923dd006d647aeb4940482de1489076fdb27befc");
+        verify(PDF_V1, PDF_DICT_V1, "f4ff419f56c222967cf2e461eca35adb01997f5ec3b61d21dfe1b0388f83290d");
+        verify(TEXT_V2, TEXT_DICT_V2, "31b30dd174a7da7817ffa926c29e1f1426baa6527f1051577941a9207b991260");
+        verify(PDF_V2, PDF_DICT_V2, "a3e0d7e7b4ee258cfe6f9287bdcaefb01e08c751ae08da5424313902306a61f4");
+    }
+
+    /**
+     * SHA-256 of the uncompressed bytes, as 64 hex characters.
+     */
+    public static String hash(byte[] raw) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(raw));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static byte[] compress(String codec, byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setDictionary(dictionary(codec));
+            deflater.setInput(raw);
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Inflate straight into {@code out}, 8 KB at a time.
+     */
+    public static void decompress(String codec, byte[] data, OutputStream out) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n > 0) {
+                    out.write(buffer, 0, n);
+                } else if (inflater.needsDictionary()) {
+                    inflater.setDictionary(dictionary(codec));
+                } else if (inflater.needsInput()) {
+                    throw new IOException("Truncated invoice blob");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt invoice blob", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Whether the decompressed blob starts with {@code prefix}; only the first
+     * few bytes are inflated.
+     */
+    public static boolean startsWith(String codec, byte[] data, byte[] prefix) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            byte[] head = new byte[prefix.length];
+            int len = 0;
+            while (len < head.length && !inflater.finished()) {
+                int n = inflater.inflate(head, len, head.length - len);
+                if (n > 0) {
+                    len += n;
+                } else if (inflater.needsDictionary()) {
+                    inflater.setDictionary(dictionary(codec));
+                } else if (inflater.needsInput()) {
+                    break;
+                }
+            }
+            return len == head.length && Arrays.equals(head, prefix);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt invoice blob", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] dictionary(String codec) {
+        if (TEXT_V1.equals(codec))
+            return TEXT_DICT_V1;
+        if (PDF_V1.equals(codec))
+            return PDF_DICT_V1;
+        if (TEXT_V2.equals(codec))
+            return TEXT_DICT_V2;
+        if (PDF_V2.equals(codec))
+            return PDF_DICT_V2;
+        throw new IllegalArgumentException("Unknown invoice codec: " + codec);
+    }
+
+    private static byte[] resource(String name) {
+        try (InputStream in = InvoiceCodec.class.getResourceAsStream(name)) {
+            if (in == null)
+                throw new IllegalStateException("Missing invoice dictionary: " + name);
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Fails class init if a dictionary no longer matches the bytes its codec
+     * was shipped with - better than writing blobs nothing can read back.
+     */
+    private static void verify(String codec, byte[] dict, String sha256) {
+        if (!hash(dict).equals(sha256))
+            throw new IllegalStateException("Dictionary for " + codec + " changed: " + hash(dict));
+    }
+}
@@ -0,0 +1,109 @@
+package util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.security.spec.KeySpec;
+import java.util.Base64;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Salted, adaptive password hashes (PBKDF2-HMAC-SHA256).
+ *
+ * Stored form: pbkdf2-sha256$iterations$salt$hash (Base64). The iteration
+ * count travels with each hash, so the cost can be raised with the
+ * greengrocer.auth.iterations system property; older hashes keep verifying
+ * and are upgraded on the next login (see needsRehash).
+ *
+ * Rows created before hashing hold the plaintext password. verify accepts
+ * them so UserDAO can rehash them on login.
+ */
+public class PasswordHasher {
+
+    private static final String PREFIX = "pbkdf2-sha256";
+    private static final int DEFAULT_ITERATIONS = 120_000;
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    public static final int ITERATIONS = Integer.getInteger("greengrocer.auth.iterations", DEFAULT_ITERATIONS);
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // Verified against when the username does not exist, so a miss costs the
+    // same as a wrong password
+    private static final String DUMMY_HASH = hash("not-a-real-password");
+
+    public static String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        byte[] hash = derive(password, salt, ITERATIONS);
+
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + "$" + ITERATIONS + "$" + b64.encodeToString(salt) + "$" + b64.encodeToString(hash);
+    }
+
+    /**
+     * Check a password against a stored hash (or legacy plaintext value).
+     * Comparison is constant time.
+     */
+    public static boolean verify(String password, String stored) {
+        if (password == null || stored == null)
+            return false;
+
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8));
+        }
+
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4)
+            return false;
+        try {
+            int iterations = Integer.parseInt(parts[1]);
+            Base64.Decoder b64 = Base64.getDecoder();
+            byte[] salt = b64.decode(parts[2]);
+            byte[] expected = b64.decode(parts[3]);
+            return MessageDigest.isEqual(derive(password, salt, iterations), expected);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Burn one verification's worth of time for a username that does not exist.
+     */
+    public static void verifyDummy(String password) {
+        verify(password != null ? password : "", DUMMY_HASH);
+    }
+
+    public static boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX + "$");
+    }
+
+    /**
+     * Whether the stored value is plaintext or was hashed with a lower cost
+     * than the current setting.
+     */
+    public static boolean needsRehash(String stored) {
+        if (!isHashed(stored))
+            return true;
+        String[] parts = stored.split("\\$");
+        try {
+            return parts.length != 4 || Integer.parseInt(parts[1]) < ITERATIONS;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        KeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
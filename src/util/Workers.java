@@ -0,0 +1,16 @@
+package util;
+
+/**
+ * Sizing of the worker pools used by batch jobs (invoice runs and exports,
+ * image ingestion).
+ */
+public class Workers {
+
+    /**
+     * Threads for a CPU-bound batch when the caller does not choose: one per
+     * core.
+     */
+    public static int defaultThreads() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+}